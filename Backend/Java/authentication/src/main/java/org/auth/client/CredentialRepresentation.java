@@ -0,0 +1,21 @@
+package org.auth.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/** Password credential sent on user creation or reset. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CredentialRepresentation {
+    public String type;
+    public String value;
+    public Boolean temporary;
+
+    public static CredentialRepresentation password(String value, boolean temporary) {
+        CredentialRepresentation c = new CredentialRepresentation();
+        c.type = "password";
+        c.value = value;
+        c.temporary = temporary;
+        return c;
+    }
+}
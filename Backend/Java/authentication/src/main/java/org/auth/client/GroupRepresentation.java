@@ -0,0 +1,17 @@
+package org.auth.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/** Group as returned by the Keycloak Admin API. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GroupRepresentation {
+    public String id;
+    public String name;
+    public String path;
+    public Long subGroupCount;
+    public List<GroupRepresentation> subGroups;
+}
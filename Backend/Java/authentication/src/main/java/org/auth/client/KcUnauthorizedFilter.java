@@ -0,0 +1,22 @@
+package org.auth.client;
+
+import org.auth.service.KcTokenManager;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+
+/** Token revoked or rotated on the Keycloak side: force a new grant next time. */
+@ApplicationScoped
+public class KcUnauthorizedFilter implements ClientResponseFilter {
+
+    @Inject
+    KcTokenManager tokens;
+
+    @Override
+    public void filter(ClientRequestContext request, ClientResponseContext response) {
+        if (response.getStatus() == 401) tokens.invalidate();
+    }
+}
@@ -0,0 +1,140 @@
+package org.auth.client;
+
+import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import org.jboss.resteasy.reactive.RestResponse;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
+import jakarta.json.JsonObject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+
+import java.util.List;
+
+/**
+ * Typed Keycloak Admin API. Base URL: {@code {keycloak}/admin/realms/{realm}}.
+ * Every call takes the {@code Authorization} header value ("Bearer ...").
+ * Non-2xx answers fail the Uni with a WebApplicationException.
+ */
+@RegisterRestClient(configKey = "keycloak-admin")
+@RegisterProvider(KcUnauthorizedFilter.class)
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public interface KeycloakAdminApi {
+
+    /* =================== users =================== */
+
+    @POST
+    @Path("/users")
+    Uni<RestResponse<Void>> createUser(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer, UserRepresentation user);
+
+    /** Raw JSON array as received (never decoded into a String) */
+    @GET
+    @Path("/users")
+    Uni<Buffer> listUsers(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer,
+                          @QueryParam("search") String search,
+                          @QueryParam("first") Integer first,
+                          @QueryParam("max") Integer max);
+
+    @GET
+    @Path("/users/{id}")
+    Uni<JsonObject> getUser(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer, @PathParam("id") String userId);
+
+    @PUT
+    @Path("/users/{id}")
+    Uni<Void> updateUser(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer, @PathParam("id") String userId,
+                         UserRepresentation user);
+
+    @PUT
+    @Path("/users/{id}/reset-password")
+    Uni<Void> resetPassword(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer, @PathParam("id") String userId,
+                            CredentialRepresentation credential);
+
+    @POST
+    @Path("/users/{id}/logout")
+    Uni<Void> logout(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer, @PathParam("id") String userId);
+
+    /* =================== role mappings =================== */
+
+    @GET
+    @Path("/users/{id}/role-mappings/realm/composite")
+    Uni<List<RoleRepresentation>> getEffectiveRealmRoles(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer,
+                                                         @PathParam("id") String userId);
+
+    @GET
+    @Path("/users/{id}/role-mappings/realm")
+    Uni<List<RoleRepresentation>> getRealmRoleMappings(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer,
+                                                       @PathParam("id") String userId);
+
+    @POST
+    @Path("/users/{id}/role-mappings/realm")
+    Uni<Void> addRealmRoleMappings(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer, @PathParam("id") String userId,
+                                   List<RoleRepresentation> roles);
+
+    @DELETE
+    @Path("/users/{id}/role-mappings/realm")
+    Uni<Void> removeRealmRoleMappings(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer, @PathParam("id") String userId,
+                                      List<RoleRepresentation> roles);
+
+    /* =================== roles =================== */
+
+    @GET
+    @Path("/roles")
+    Uni<List<RoleRepresentation>> listRealmRoles(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer);
+
+    @GET
+    @Path("/roles/{name}")
+    Uni<RoleRepresentation> getRealmRole(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer, @PathParam("name") String name);
+
+    /** Users with the role mapped directly (not through composites or groups), as Keycloak's JSON bytes */
+    @GET
+    @Path("/roles/{name}/users")
+    Uni<Buffer> getRealmRoleUsers(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer,
+                                  @PathParam("name") String name,
+                                  @QueryParam("first") Integer first,
+                                  @QueryParam("max") Integer max);
+
+    /* =================== groups =================== */
+
+    @GET
+    @Path("/groups")
+    Uni<List<GroupRepresentation>> searchGroups(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer,
+                                                @QueryParam("search") String search);
+
+    /** Group at that path (no leading slash); segments must already be URL-encoded, the slashes between them are kept */
+    @GET
+    @Path("/group-by-path/{path: .+}")
+    Uni<GroupRepresentation> getGroupByPath(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer,
+                                            @Encoded @PathParam("path") String path);
+
+    /** Top-level groups; older servers inline the whole tree in subGroups, newer ones only subGroupCount */
+    @GET
+    @Path("/groups")
+    Uni<List<GroupRepresentation>> listGroups(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer,
+                                              @QueryParam("first") Integer first,
+                                              @QueryParam("max") Integer max);
+
+    @GET
+    @Path("/groups/{id}/children")
+    Uni<List<GroupRepresentation>> getGroupChildren(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer,
+                                                    @PathParam("id") String id,
+                                                    @QueryParam("first") Integer first,
+                                                    @QueryParam("max") Integer max);
+
+    @GET
+    @Path("/users/{id}/groups")
+    Uni<List<GroupRepresentation>> getUserGroups(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer,
+                                                 @PathParam("id") String userId);
+
+    @PUT
+    @Path("/users/{id}/groups/{groupId}")
+    Uni<Void> joinGroup(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer, @PathParam("id") String userId,
+                        @PathParam("groupId") String groupId);
+
+    @DELETE
+    @Path("/users/{id}/groups/{groupId}")
+    Uni<Void> leaveGroup(@HeaderParam(HttpHeaders.AUTHORIZATION) String bearer, @PathParam("id") String userId,
+                         @PathParam("groupId") String groupId);
+}
@@ -0,0 +1,24 @@
+package org.auth.client;
+
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.FormParam;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+/** Token endpoint of the realm. Base URL: {@code {keycloak}/realms/{realm}}. */
+@RegisterRestClient(configKey = "keycloak-token")
+@Path("/protocol/openid-connect/token")
+public interface KeycloakTokenApi {
+
+    @POST
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces(MediaType.APPLICATION_JSON)
+    Uni<TokenResponse> grant(@FormParam("grant_type") String grantType,
+                             @FormParam("client_id") String clientId,
+                             @FormParam("client_secret") String clientSecret);
+}
@@ -0,0 +1,16 @@
+package org.auth.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/** Realm role as exchanged with the Keycloak Admin API. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RoleRepresentation {
+    public String id;
+    public String name;
+    public String description;
+    public Boolean composite;
+    public Boolean clientRole;
+    public String containerId;
+}
@@ -0,0 +1,14 @@
+package org.auth.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** client_credentials grant response. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TokenResponse {
+    @JsonProperty("access_token")
+    public String accessToken;
+
+    @JsonProperty("expires_in")
+    public Long expiresIn;
+}
@@ -0,0 +1,21 @@
+package org.auth.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/** User payload for create/update calls; only the fields set are sent. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserRepresentation {
+    public String id;
+    public String username;
+    public String email;
+    public Boolean emailVerified;
+    public Boolean enabled;
+    /** Accepted on create only: initial credentials stored in the same transaction */
+    public List<CredentialRepresentation> credentials;
+    /** Accepted on create only: group paths ("/customers") the user joins */
+    public List<String> groups;
+}
@@ -0,0 +1,222 @@
+package org.auth.resources;
+
+import org.auth.resources.AuthAdminResource.CreateUserReq;
+import org.auth.resources.AuthAdminResource.ErrorResponse;
+import org.auth.service.AdminJobs;
+import org.auth.service.AdminJobs.Status;
+import org.auth.service.NewUser;
+
+import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.mutiny.Multi;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriBuilder;
+
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
+import org.eclipse.microprofile.openapi.annotations.media.*;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirement;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+
+/**
+ * Bulk operations as background jobs: submit, then poll or follow progress over SSE, and cancel.
+ * Same rules as the synchronous bulk endpoints of {@link AuthAdminResource}, with a larger item limit.
+ */
+@Path("/api/auth/jobs")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@Tag(name = "Auth Admin Jobs", description = "Long-running bulk user operations executed in the background.")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminJobResource {
+
+    private final AdminJobs jobs;
+    private final SecurityIdentity identity;
+
+    @Inject
+    public AdminJobResource(AdminJobs jobs, SecurityIdentity identity) {
+        this.jobs = jobs;
+        this.identity = identity;
+    }
+
+    /* SCHEMAS */
+
+    public enum JobOperation { CREATE_USERS, SET_ENABLED, ADD_REALM_ROLES, REMOVE_REALM_ROLES }
+
+    @Schema(name = "JobRequest", description = "A bulk operation to run in the background; the fields used depend on `operation`.")
+    public static class JobReq {
+        @Schema(required = true, example = "SET_ENABLED")
+        public JobOperation operation;
+
+        @Schema(description = "CREATE_USERS: users to create (same fields as POST /users)")
+        public List<CreateUserReq> users;
+
+        @Schema(description = "SET_ENABLED, *_REALM_ROLES: target user IDs", example = "[\"5b2a9f0a-8d7a-4b1e-9c2b-1234567890ab\"]")
+        public List<String> userIds;
+
+        @Schema(description = "*_REALM_ROLES: targets every user matching this Keycloak search instead of userIds", example = "@partner-cinema.com")
+        public String search;
+
+        @Schema(description = "*_REALM_ROLES: realm roles to add or remove", example = "[\"Customer\"]")
+        public List<String> roles;
+
+        @Schema(description = "SET_ENABLED: new status (disabling also logs the users out)", example = "false")
+        public Boolean enabled;
+    }
+
+    /* ENDPOINTS */
+
+    /* ------------------------ POST /jobs ------------------------ */
+
+    @POST
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(
+        summary = "Submit a bulk job",
+        description = "Validates the request, queues it and answers at once with the job status; the work runs on a dedicated bounded executor. " +
+                      "CREATE_USERS requires the `admin` role, and the `admin` realm role can never be granted or revoked."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "202", description = "Job queued (Location points to the job)",
+            content = @Content(schema = @Schema(implementation = Status.class))
+        ),
+        @APIResponse(responseCode = "400", description = "Invalid payload",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class),
+                examples = @ExampleObject(value = "{ \"error\": \"userIds required\" }")
+            )
+        ),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Forbidden (CREATE_USERS without `admin`, or `admin` in roles)"),
+        @APIResponse(responseCode = "503", description = "Too many jobs waiting",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class),
+                examples = @ExampleObject(value = "{ \"error\": \"Job queue is full, retry later\" }")
+            )
+        )
+    })
+    public Response submit(
+        @RequestBody(
+            required = true,
+            content = @Content(schema = @Schema(implementation = JobReq.class),
+                examples = @ExampleObject(value = "{ \"operation\": \"SET_ENABLED\", \"enabled\": false, \"userIds\": [\"5b2a9f0a-...\"] }")
+            )
+        ) JobReq req
+    ) {
+        if (req == null || req.operation == null) throw new BadRequestException("operation is required");
+        Status status;
+        try {
+            status = switch (req.operation) {
+                case CREATE_USERS -> submitCreateUsers(req);
+                case SET_ENABLED -> submitSetEnabled(req);
+                case ADD_REALM_ROLES, REMOVE_REALM_ROLES -> submitRealmRoles(req, req.operation == JobOperation.ADD_REALM_ROLES);
+            };
+        } catch (RejectedExecutionException e) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(Map.of("error", "Job queue is full, retry later")).build();
+        }
+        return Response.accepted(status)
+                .location(UriBuilder.fromResource(AdminJobResource.class).path(status.id()).build())
+                .build();
+    }
+
+    /* ------------------------ GET /jobs/{id} ------------------------ */
+
+    @GET
+    @Path("/{id}")
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(summary = "Get job status", description = "Processed, failed and remaining counts and the job state.")
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "Current status",
+            content = @Content(schema = @Schema(implementation = Status.class))
+        ),
+        @APIResponse(responseCode = "404", description = "Unknown or expired job")
+    })
+    public Status status(@Parameter(required = true, description = "Job ID") @PathParam("id") String id) {
+        return jobs.status(id).orElseThrow(NotFoundException::new);
+    }
+
+    /* ------------------------ GET /jobs/{id}/events ------------------------ */
+
+    @GET
+    @Path("/{id}/events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(
+        summary = "Follow job progress",
+        description = "Server-sent events with the job status at a fixed interval; the stream ends after the first event in a finished state."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "SSE stream of job status snapshots"),
+        @APIResponse(responseCode = "404", description = "Unknown or expired job")
+    })
+    public Multi<Status> events(@Parameter(required = true, description = "Job ID") @PathParam("id") String id) {
+        if (jobs.status(id).isEmpty()) throw new NotFoundException();
+        return jobs.progress(id);
+    }
+
+    /* ------------------------ DELETE /jobs/{id} ------------------------ */
+
+    @DELETE
+    @Path("/{id}")
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(
+        summary = "Cancel a job",
+        description = "A queued job never starts; a running one stops before its next item. Items already applied are not rolled back."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "202", description = "Cancellation requested",
+            content = @Content(schema = @Schema(implementation = Status.class))
+        ),
+        @APIResponse(responseCode = "404", description = "Unknown or expired job")
+    })
+    public Response cancel(@Parameter(required = true, description = "Job ID") @PathParam("id") String id) {
+        Status status = jobs.cancel(id).orElseThrow(NotFoundException::new);
+        return Response.accepted(status).build();
+    }
+
+    /* HELPERS */
+
+    private Status submitCreateUsers(JobReq req) {
+        if (!identity.hasRole("admin")) throw new ForbiddenException("Creating users requires the admin role.");
+        if (req.users == null || req.users.isEmpty()) throw new BadRequestException("users required");
+        assertWithinLimit(req.users.size());
+        req.users.stream().filter(Objects::nonNull).forEach(u -> AuthAdminResource.assertNoAdminRole(u.realmRoles));
+        List<NewUser> users = req.users.stream().map(AuthAdminResource::toNewUser).toList();
+        return jobs.submit(req.operation.name(), users.size(), (kc, progress) -> kc.createUsers(users, progress));
+    }
+
+    private Status submitSetEnabled(JobReq req) {
+        if (req.enabled == null) throw new BadRequestException("enabled is required");
+        if (req.userIds == null || req.userIds.isEmpty()) throw new BadRequestException("userIds required");
+        assertWithinLimit(req.userIds.size());
+        List<String> userIds = List.copyOf(req.userIds);
+        boolean enabled = req.enabled;
+        return jobs.submit(req.operation.name(), userIds.size(), (kc, progress) -> kc.setEnabled(userIds, enabled, progress));
+    }
+
+    private Status submitRealmRoles(JobReq req, boolean add) {
+        if (req.roles == null || req.roles.isEmpty()) throw new BadRequestException("roles required");
+        boolean byIds = req.userIds != null && !req.userIds.isEmpty();
+        boolean bySearch = req.search != null && !req.search.isBlank();
+        if (byIds == bySearch) throw new BadRequestException("either userIds or search is required");
+        if (byIds) assertWithinLimit(req.userIds.size());
+        AuthAdminResource.assertNoAdminRole(req.roles);
+        List<String> userIds = byIds ? List.copyOf(req.userIds) : null;
+        List<String> roles = List.copyOf(req.roles);
+        String search = req.search;
+        return jobs.submit(req.operation.name(), byIds ? userIds.size() : null,
+                (kc, progress) -> kc.changeRealmRoles(userIds, search, roles, add, progress));
+    }
+
+    private void assertWithinLimit(int items) {
+        if (items > jobs.maxItems()) throw new BadRequestException("At most " + jobs.maxItems() + " items per job");
+    }
+}
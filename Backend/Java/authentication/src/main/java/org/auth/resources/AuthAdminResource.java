@@ -1,15 +1,25 @@
 package org.auth.resources;
 
+import org.auth.service.BatchItemResult;
 import org.auth.service.KcAdminService;
+import org.auth.service.NewUser;
+import org.auth.service.Promotion;
+import org.auth.service.UserImportReader;
 
 import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.vertx.core.buffer.Buffer;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.json.JsonObject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -34,8 +44,15 @@ import org.eclipse.microprofile.openapi.annotations.enums.SecuritySchemeType;
     bearerFormat = "JWT"
 )
 @SecurityRequirement(name = "bearerAuth")
+@RunOnVirtualThread // falls back to the worker pool when quarkus.virtual-threads.enabled=false
 public class AuthAdminResource {
 
+    static final String NDJSON = "application/x-ndjson";
+    static final String CSV = "text/csv";
+    /** Some steps of the request were applied and some failed; the body says which */
+    static final int MULTI_STATUS = 207;
+    static final String ADMIN_ROLE_FORBIDDEN = "The ‘admin’ role cannot be assigned or removed with this endpoint.";
+
     private final KcAdminService kc;
     private final SecurityIdentity identity;
 
@@ -63,6 +80,12 @@ public class AuthAdminResource {
 
         @Schema(description = "Creates the user as enabled.", defaultValue = "true", example = "true")
         public Boolean enabled = Boolean.TRUE;
+
+        @Schema(description = "Realm roles granted on creation (`admin` is not allowed).", example = "[\"Customer\"]")
+        public List<String> realmRoles;
+
+        @Schema(description = "Groups the user joins on creation (name or path).", example = "[\"/customers\"]")
+        public List<String> groups;
     }
 
     @Schema(name = "CreateUserResponse", description = "Response containing the created user's identifier.")
@@ -71,6 +94,29 @@ public class AuthAdminResource {
         public String id;
     }
 
+    @Schema(name = "BatchCreateUsersRequest", description = "Users to create in one request.")
+    public static class BatchCreateUsersReq {
+        @Schema(required = true)
+        public List<CreateUserReq> users;
+    }
+
+    @Schema(name = "BatchResult", description = "Per-item outcome of a bulk operation, in request order.")
+    public static class BatchRes {
+        @Schema(example = "2") public int succeeded;
+        @Schema(example = "1") public int failed;
+        @Schema(description = "One entry per item: `index`, `id` when known, and `status`/`error` when it failed",
+            example = "[{\"index\":0,\"id\":\"5b2a9f0a-...\"},{\"index\":1,\"status\":409,\"error\":\"Create user failed: 409 ...\"}]")
+        public List<BatchItemResult> results;
+
+        static BatchRes of(List<BatchItemResult> results) {
+            BatchRes res = new BatchRes();
+            res.results = results;
+            res.succeeded = (int) results.stream().filter(BatchItemResult::succeeded).count();
+            res.failed = results.size() - res.succeeded;
+            return res;
+        }
+    }
+
     @Schema(name = "PasswordRequest", description = "Set or reset a user's password.")
     public static class PasswordReq {
         @Schema(required = true, example = "N3wP4ssword!")
@@ -86,12 +132,39 @@ public class AuthAdminResource {
         public Boolean enabled;
     }
 
+    @Schema(name = "LookupRequest", description = "User IDs to fetch at once (duplicates allowed).")
+    public static class LookupReq {
+        @Schema(required = true, example = "[\"5b2a9f0a-8d7a-4b1e-9c2b-1234567890ab\"]")
+        public List<String> userIds;
+    }
+
+    @Schema(name = "BulkEnabledRequest", description = "Enable or disable many user accounts.")
+    public static class BulkEnabledReq {
+        @Schema(required = true, example = "false")
+        public Boolean enabled;
+
+        @Schema(required = true, description = "Target user IDs", example = "[\"5b2a9f0a-8d7a-4b1e-9c2b-1234567890ab\"]")
+        public List<String> userIds;
+    }
+
     @Schema(name = "RolesRequest", description = "Realm roles to add or remove for a user.")
     public static class RolesReq {
         @Schema(required = true, example = "[\"Customer\",\"client\"]")
         public List<String> roles;
     }
 
+    @Schema(name = "BulkRolesRequest", description = "Realm roles to add or remove for many users: either `userIds` or `search`.")
+    public static class BulkRolesReq {
+        @Schema(required = true, example = "[\"Customer\"]")
+        public List<String> roles;
+
+        @Schema(description = "Target user IDs", example = "[\"5b2a9f0a-8d7a-4b1e-9c2b-1234567890ab\"]")
+        public List<String> userIds;
+
+        @Schema(description = "Targets every user matching this Keycloak search instead", example = "@partner-cinema.com")
+        public String search;
+    }
+
     @Schema(name = "ErrorResponse", description = "Standard error payload.")
     public static class ErrorResponse {
         @Schema(example = "No se puede activar/desactivar un administrador")
@@ -129,7 +202,8 @@ public class AuthAdminResource {
     @RolesAllowed({"admin"})
     @Operation(
         summary = "Create a new user",
-        description = "Creates a user in Keycloak and sets the initial password. Requires `admin` role."
+        description = "Creates a user in Keycloak with its initial password and optional groups in a single request; " +
+                      "optional realm roles are granted right after. Requires `admin` role."
     )
     @APIResponses({
         @APIResponse(
@@ -145,7 +219,7 @@ public class AuthAdminResource {
             )
         ),
         @APIResponse(responseCode = "401", description = "Unauthenticated"),
-        @APIResponse(responseCode = "403", description = "Forbidden (missing `admin` role)"),
+        @APIResponse(responseCode = "403", description = "Forbidden (missing `admin` role, or `admin` requested in realmRoles)"),
         @APIResponse(responseCode = "500", description = "Keycloak admin error")
     })
     public Response createUser(
@@ -159,7 +233,9 @@ public class AuthAdminResource {
                     "  \"email\": \"aleja@example.com\",\n" +
                     "  \"password\": \"S3cretPwd!\",\n" +
                     "  \"emailVerified\": true,\n" +
-                    "  \"enabled\": true\n" +
+                    "  \"enabled\": true,\n" +
+                    "  \"realmRoles\": [\"Customer\"],\n" +
+                    "  \"groups\": [\"/customers\"]\n" +
                     "}"
                 )
             )
@@ -168,18 +244,98 @@ public class AuthAdminResource {
         if (req.username == null || req.email == null || req.password == null) {
             throw new BadRequestException("username, email and password are required");
         }
-        String id = kc.createUser(
-            req.username,
-            req.email,
-            req.emailVerified != null && req.emailVerified,
-            req.enabled == null || req.enabled
-        );
-        kc.setPassword(id, req.password, false);
+        assertNoAdminRole(req.realmRoles);
+        String id = kc.createUser(toNewUser(req));
         return Response.status(Response.Status.CREATED)
                 .entity(Map.of("id", id))
                 .build();
     }
 
+    /* ------------------------ POST /users/batch ------------------------ */
+
+    @POST
+    @Path("/users/batch")
+    @RolesAllowed({"admin"})
+    @Operation(
+        summary = "Create many users",
+        description = "Creates each user and sets its initial password, running a bounded number of items against Keycloak at a time. " +
+                      "Failures are reported per item and never abort the rest of the batch. Requires `admin` role."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "Batch processed (check each item)",
+            content = @Content(schema = @Schema(implementation = BatchRes.class))
+        ),
+        @APIResponse(responseCode = "400", description = "Empty or oversized batch",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class),
+                examples = @ExampleObject(value = "{ \"error\": \"users required\" }")
+            )
+        ),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Forbidden (missing `admin` role)")
+    })
+    public Response createUsers(
+        @RequestBody(
+            required = true,
+            description = "Users to create (same fields as POST /users)",
+            content = @Content(schema = @Schema(implementation = BatchCreateUsersReq.class))
+        ) BatchCreateUsersReq req
+    ) {
+        if (req == null || req.users == null || req.users.isEmpty()) throw new BadRequestException("users required");
+        if (req.users.size() > kc.maxBatchSize()) {
+            throw new BadRequestException("At most " + kc.maxBatchSize() + " users per batch");
+        }
+        req.users.stream().filter(Objects::nonNull).forEach(u -> assertNoAdminRole(u.realmRoles));
+        List<NewUser> users = req.users.stream().map(AuthAdminResource::toNewUser).toList();
+        return Response.ok(BatchRes.of(kc.createUsers(users))).build();
+    }
+
+    /* ------------------------ POST /users/import ------------------------ */
+
+    @POST
+    @Path("/users/import")
+    @Consumes({CSV, NDJSON})
+    @Produces(NDJSON)
+    @RolesAllowed({"admin"})
+    @Operation(
+        summary = "Import users from a CSV or NDJSON upload",
+        description = "Reads the upload row by row and creates each user as POST /users does, with a bounded number of rows in Keycloak at a time. " +
+                      "CSV needs a header row with `username,email,password` (optional `emailVerified,enabled,realmRoles,groups`, lists separated by `;`). " +
+                      "One NDJSON result per row is streamed back as soon as it is known. Requires `admin` role."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "NDJSON stream of per-row results (completion order)",
+            content = @Content(mediaType = NDJSON,
+                examples = @ExampleObject(value =
+                    "{\"index\":0,\"id\":\"5b2a9f0a-...\"}\n" +
+                    "{\"index\":1,\"status\":409,\"error\":\"Create user failed: 409 ...\"}"
+                )
+            )
+        ),
+        @APIResponse(responseCode = "400", description = "Missing or invalid CSV header",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class),
+                examples = @ExampleObject(value = "{ \"error\": \"CSV column missing: email\" }")
+            )
+        ),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Forbidden (missing `admin` role)")
+    })
+    public Response importUsers(
+        @HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+        InputStream upload
+    ) throws IOException {
+        UserImportReader.Format format = contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(NDJSON)
+                ? UserImportReader.Format.NDJSON
+                : UserImportReader.Format.CSV;
+        UserImportReader rows;
+        try {
+            rows = UserImportReader.open(format, upload);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        StreamingOutput body = out -> kc.importUsers(rows, u -> grantsAdmin(u.realmRoles()) ? ADMIN_ROLE_FORBIDDEN : null, out);
+        return Response.ok(body).type(NDJSON).build();
+    }
+
     /* -------------------- PUT /users/{id}/password -------------------- */
 
     @PUT
@@ -223,7 +379,10 @@ public class AuthAdminResource {
     @RolesAllowed({"admin","auth.admin"})
     @Operation(
         summary = "List users",
-        description = "Returns a raw JSON array from Keycloak's Admin API. Filtering and pagination are proxied."
+        description = "Returns a raw JSON array from Keycloak's Admin API. Filtering and pagination are proxied. " +
+                      "With `include=realmRoles` each user also carries its realm roles, resolved with one short member " +
+                      "listing per realm role; when a role has more members than the page, the roles are read per user " +
+                      "instead. Either way these are the user's direct mappings."
     )
     @APIResponses({
         @APIResponse(
@@ -253,12 +412,51 @@ public class AuthAdminResource {
         @Parameter(description = "Pagination offset", example = "0")
         @QueryParam("first") Integer first,
         @Parameter(description = "Page size", example = "50")
-        @QueryParam("max") Integer max
+        @QueryParam("max") Integer max,
+        @Parameter(description = "Extra data to join onto each user (only `realmRoles`)", example = "realmRoles")
+        @QueryParam("include") String include
     ) {
-        String json = kc.listUsersRaw(q, first, max);
+        if (include != null && !include.isBlank()) {
+            if (!"realmRoles".equals(include)) throw new BadRequestException("include supports only realmRoles");
+            return Response.ok(kc.listUsersWithRealmRoles(q, first, max)).build();
+        }
+        // bytes go back exactly as Keycloak sent them, without a String round trip
+        Buffer json = kc.listUsersRaw(q, first, max);
         return Response.ok(json).type(MediaType.APPLICATION_JSON).build();
     }
 
+    /* ------------------------ GET /users/export ------------------------ */
+
+    @GET
+    @Path("/users/export")
+    @Produces(NDJSON)
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(
+        summary = "Export all users",
+        description = "Streams every user (optionally filtered by `q`) as newline-delimited JSON, one Keycloak user per line. " +
+                      "Paging through Keycloak happens server-side, so memory use stays constant for any realm size."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "NDJSON stream of users",
+            content = @Content(mediaType = NDJSON,
+                examples = @ExampleObject(value =
+                    "{\"id\":\"5b2a9f0a-...\",\"username\":\"aleja\",\"email\":\"aleja@example.com\",\"enabled\":true}\n" +
+                    "{\"id\":\"7c1d2e3f-...\",\"username\":\"nico\",\"email\":\"nico@example.com\",\"enabled\":true}"
+                )
+            )
+        ),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Forbidden"),
+        @APIResponse(responseCode = "500", description = "Keycloak admin error")
+    })
+    public Response exportUsers(
+        @Parameter(description = "Search term (forwarded to Keycloak `search`)", example = "aleja")
+        @QueryParam("q") String q
+    ) {
+        StreamingOutput body = out -> kc.exportUsers(q, out);
+        return Response.ok(body).type(NDJSON).build();
+    }
+
     /* -------------------- GET /users/{id} (details) -------------------- */
 
     @GET
@@ -298,11 +496,54 @@ public class AuthAdminResource {
         return Response.ok(user).build();
     }
 
+    /* -------------------- POST /users/lookup -------------------- */
+
+    @POST
+    @Path("/users/lookup")
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(
+        summary = "Get many users by id",
+        description = "Returns the details (as GET /users/{id}) of every listed user, keyed by id. Duplicate ids are fetched once, " +
+                      "recently fetched users come from cache and the rest is fetched concurrently. Unknown ids are left out of the result."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "Map of user id to user detail",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                examples = @ExampleObject(value =
+                    "{ \"5b2a9f0a-...\": { \"id\": \"5b2a9f0a-...\", \"username\": \"aleja\", \"realmRoles\": [\"Customer\"] } }"
+                )
+            )
+        ),
+        @APIResponse(responseCode = "400", description = "Empty or oversized id list",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class),
+                examples = @ExampleObject(value = "{ \"error\": \"userIds required\" }")
+            )
+        ),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Forbidden"),
+        @APIResponse(responseCode = "500", description = "Keycloak admin error")
+    })
+    public Response lookupUsers(
+        @RequestBody(
+            required = true,
+            content = @Content(schema = @Schema(implementation = LookupReq.class),
+                examples = @ExampleObject(value = "{ \"userIds\": [\"5b2a9f0a-8d7a-4b1e-9c2b-1234567890ab\"] }")
+            )
+        ) LookupReq req
+    ) {
+        if (req == null || req.userIds == null || req.userIds.isEmpty()) throw new BadRequestException("userIds required");
+        if (req.userIds.size() > kc.maxBatchSize()) {
+            throw new BadRequestException("At most " + kc.maxBatchSize() + " ids per lookup");
+        }
+        return Response.ok(kc.lookupUsers(req.userIds)).build();
+    }
+
     /* -------------------- PUT /users/{id}/enabled -------------------- */
 
     @PUT
     @Path("/users/{id}/enabled")
     @RolesAllowed({"admin","auth.admin"})
+    @UserMutation
     @Operation(
         summary = "Enable or disable a user",
         description = "Sets the user's enabled status. The operation is forbidden for administrators."
@@ -344,6 +585,52 @@ public class AuthAdminResource {
         return Response.noContent().build();
     }
 
+    /* -------------------- PUT /users/enabled/bulk -------------------- */
+
+    @PUT
+    @Path("/users/enabled/bulk")
+    @Produces(NDJSON)
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(
+        summary = "Enable or disable many users",
+        description = "Sets the enabled status of every listed user; disabling also logs out their sessions. Administrator checks, enable writes " +
+                      "and logouts run concurrently with configured limits. One NDJSON result per user is streamed back as it finishes, " +
+                      "so the stream doubles as progress; administrators are skipped with a per-user 403."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "NDJSON stream of per-user results (completion order)",
+            content = @Content(mediaType = NDJSON,
+                examples = @ExampleObject(value =
+                    "{\"index\":1,\"id\":\"5b2a9f0a-...\"}\n" +
+                    "{\"index\":0,\"id\":\"9c1d...\",\"status\":403,\"error\":\"You cannot enable/disable an administrator.\"}"
+                )
+            )
+        ),
+        @APIResponse(responseCode = "400", description = "Invalid payload",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class),
+                examples = @ExampleObject(value = "{ \"error\": \"userIds required\" }")
+            )
+        ),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Forbidden")
+    })
+    public Response bulkSetEnabled(
+        @RequestBody(
+            required = true,
+            content = @Content(schema = @Schema(implementation = BulkEnabledReq.class),
+                examples = @ExampleObject(value = "{ \"enabled\": false, \"userIds\": [\"5b2a9f0a-8d7a-4b1e-9c2b-1234567890ab\"] }")
+            )
+        ) BulkEnabledReq req
+    ) {
+        if (req == null || req.enabled == null) throw new BadRequestException("enabled is required");
+        if (req.userIds == null || req.userIds.isEmpty()) throw new BadRequestException("userIds required");
+        if (req.userIds.size() > kc.maxBatchSize()) {
+            throw new BadRequestException("At most " + kc.maxBatchSize() + " users per batch");
+        }
+        StreamingOutput body = out -> kc.bulkSetEnabled(req.userIds, req.enabled, out);
+        return Response.ok(body).type(NDJSON).build();
+    }
+
     /* -------------------- POST /users/{id}/roles/realm -------------------- */
 
     @POST
@@ -379,7 +666,8 @@ public class AuthAdminResource {
             )
         ) RolesReq req
     ) {
-        assertCanModifyRoles(userId, req.roles);
+        assertCanModifyRoles(req.roles);
+        // the service checks the target and orders the change per user (no @UserMutation: see RoleChangeCoalescer)
         kc.addRealmRoles(userId, req.roles);
         return Response.noContent().build();
     }
@@ -419,22 +707,102 @@ public class AuthAdminResource {
             )
         ) RolesReq req
     ) {
-        assertCanModifyRoles(userId, req.roles);
+        assertCanModifyRoles(req.roles);
         kc.removeRealmRoles(userId, req.roles);
         return Response.noContent().build();
     }
 
+    /* -------------------- POST /users/roles/realm/bulk -------------------- */
+
+    @POST
+    @Path("/users/roles/realm/bulk")
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(
+        summary = "Add realm roles to many users",
+        description = "Assigns the roles to every listed user (or every user matching `search`). Roles are resolved once and users are " +
+                      "processed with bounded parallelism; administrators are skipped with a per-user 403. The `admin` role cannot be assigned."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "Per-user results",
+            content = @Content(schema = @Schema(implementation = BatchRes.class))
+        ),
+        @APIResponse(responseCode = "400", description = "Invalid payload",
+            content = @Content(schema = @Schema(implementation = ErrorResponse.class),
+                examples = @ExampleObject(value = "{ \"error\": \"either userIds or search is required\" }")
+            )
+        ),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Attempt to assign the `admin` role"),
+        @APIResponse(responseCode = "500", description = "Keycloak admin error")
+    })
+    public Response bulkAddRealmRoles(
+        @RequestBody(
+            required = true,
+            content = @Content(schema = @Schema(implementation = BulkRolesReq.class),
+                examples = @ExampleObject(value = "{ \"roles\": [\"Customer\"], \"search\": \"@partner-cinema.com\" }")
+            )
+        ) BulkRolesReq req
+    ) {
+        List<BatchItemResult> results = validateBulkRoles(req)
+                ? kc.bulkAddRealmRolesMatching(req.search, req.roles)
+                : kc.bulkAddRealmRoles(req.userIds, req.roles);
+        return Response.ok(BatchRes.of(results)).build();
+    }
+
+    /* -------------------- DELETE /users/roles/realm/bulk -------------------- */
+
+    @DELETE
+    @Path("/users/roles/realm/bulk")
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(
+        summary = "Remove realm roles from many users",
+        description = "Revokes the roles from every listed user (or every user matching `search`), with the same rules as the bulk assignment."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "Per-user results",
+            content = @Content(schema = @Schema(implementation = BatchRes.class))
+        ),
+        @APIResponse(responseCode = "400", description = "Invalid payload"),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Attempt to remove the `admin` role"),
+        @APIResponse(responseCode = "500", description = "Keycloak admin error")
+    })
+    public Response bulkRemoveRealmRoles(
+        @RequestBody(
+            required = true,
+            content = @Content(schema = @Schema(implementation = BulkRolesReq.class))
+        ) BulkRolesReq req
+    ) {
+        List<BatchItemResult> results = validateBulkRoles(req)
+                ? kc.bulkRemoveRealmRolesMatching(req.search, req.roles)
+                : kc.bulkRemoveRealmRoles(req.userIds, req.roles);
+        return Response.ok(BatchRes.of(results)).build();
+    }
+
     /* -------------------- POST /users/{id}/promote-admin -------------------- */
 
     @POST
     @Path("/users/{id}/promote-admin")
     @RolesAllowed({"admin","auth.admin"})
+    @UserMutation
     @Operation(
         summary = "Promote user to admin",
-        description = "Assigns the `admin` realm role, removes `Customer` if present, and removes the user from the `customers` group if applicable."
+        description = "Assigns the `admin` realm role, removes `Customer` if present, and removes the user from the `customers` group if applicable. " +
+                      "The user's roles and groups are read once and the independent changes are applied in parallel; the response lists what changed. " +
+                      "When `admin` was granted but removing `Customer` or leaving `customers` failed, the answer is 207 with the failed steps in `failed`."
     )
     @APIResponses({
-        @APIResponse(responseCode = "204", description = "Promotion applied"),
+        @APIResponse(responseCode = "200", description = "Promotion applied",
+            content = @Content(schema = @Schema(implementation = Promotion.class),
+                examples = @ExampleObject(value = "{ \"addedRealmRoles\": [\"admin\"], \"removedRealmRoles\": [\"Customer\"], \"leftGroups\": [\"customers\"] }")
+            )
+        ),
+        @APIResponse(responseCode = "207", description = "Admin granted, but a follow-up step failed",
+            content = @Content(schema = @Schema(implementation = Promotion.class),
+                examples = @ExampleObject(value = "{ \"addedRealmRoles\": [\"admin\"], \"removedRealmRoles\": [\"Customer\"], \"leftGroups\": [], " +
+                    "\"failed\": [{ \"step\": \"leaveGroup\", \"target\": \"customers\", \"status\": 500, \"error\": \"Remove from group failed: 500\" }] }")
+            )
+        ),
         @APIResponse(responseCode = "401", description = "Unauthenticated"),
         @APIResponse(responseCode = "403", description = "Forbidden"),
         @APIResponse(responseCode = "404", description = "User not found"),
@@ -449,32 +817,129 @@ public class AuthAdminResource {
         @Parameter(required = true, description = "User ID", example = "5b2a9f0a-8d7a-4b1e-9c2b-1234567890ab")
         @PathParam("id") String userId
     ) {
-        if (kc.userHasRealmRole(userId, "admin")) {
-            return Response.status(Response.Status.CONFLICT)
-                    .entity(Map.of("error", "El usuario ya es admin")).build();
-        }
+        return kc.promoteToAdmin(userId)
+                .map(changes -> Response.status(changes.partial() ? MULTI_STATUS : 200).entity(changes).build())
+                .orElseGet(() -> Response.status(Response.Status.CONFLICT)
+                        .entity(Map.of("error", "El usuario ya es admin")).build());
+    }
 
-        kc.addRealmRoles(userId, List.of("admin"));
+    /* -------------------- POST /roles/cache/reload -------------------- */
 
-        if (kc.userHasRealmRole(userId, "Customer")) {
-            kc.removeRealmRoles(userId, List.of("Customer"));
-        }
+    @POST
+    @Path("/roles/cache/reload")
+    @RolesAllowed({"admin"})
+    @Operation(
+        summary = "Reload cached realm roles",
+        description = "Drops the cached realm role representations and loads them again from Keycloak. Use after creating, renaming or deleting realm roles."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "Roles reloaded",
+            content = @Content(examples = @ExampleObject(value = "{ \"roles\": 5 }"))
+        ),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Forbidden (missing `admin` role)"),
+        @APIResponse(responseCode = "500", description = "Keycloak admin error")
+    })
+    public Response reloadRealmRoles() {
+        int count = kc.reloadRealmRoles();
+        return Response.ok(Map.of("roles", count)).build();
+    }
 
-        kc.findGroupByName("customers").ifPresent(g -> {
-            String gid = g.getString("id");
-            if (kc.userInGroup(userId, gid)) kc.removeUserFromGroup(userId, gid);
-        });
+    /* -------------------- GET /roles/cache/stats -------------------- */
 
-        return Response.noContent().build();
+    @GET
+    @Path("/roles/cache/stats")
+    @RolesAllowed({"admin"})
+    @Operation(
+        summary = "Per-user role cache statistics",
+        description = "Hits, misses, evictions and current size of the cache of effective realm roles per user."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "Cache statistics",
+            content = @Content(examples = @ExampleObject(value = "{ \"hits\": 120, \"misses\": 8, \"evictions\": 0, \"size\": 8 }"))
+        ),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Forbidden (missing `admin` role)")
+    })
+    public Response userRoleCacheStats() {
+        return Response.ok(kc.userRoleCacheStats()).build();
+    }
+
+    /* -------------------- GET /users/mutations/stats -------------------- */
+
+    @GET
+    @Path("/users/mutations/stats")
+    @RolesAllowed({"admin"})
+    @Operation(
+        summary = "Per-user mutation ordering statistics",
+        description = "How many user mutations (enable/disable, role changes, promotion) ran, how many had to wait for another one " +
+                      "on the same user, how many are waiting now and the total time spent waiting."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "Contention statistics",
+            content = @Content(examples = @ExampleObject(value = "{ \"mutations\": 240, \"contended\": 3, \"waiting\": 0, \"waitMillis\": 41, \"users\": 0 }"))
+        ),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Forbidden (missing `admin` role)")
+    })
+    public Response userMutationStats() {
+        return Response.ok(kc.userMutationStats()).build();
+    }
+
+    /* -------------------- GET /keycloak/limiter/stats -------------------- */
+
+    @GET
+    @Path("/keycloak/limiter/stats")
+    @RolesAllowed({"admin"})
+    @Operation(
+        summary = "Keycloak call limiter statistics",
+        description = "Current adaptive limit of concurrent Keycloak Admin API calls, calls in flight and waiting, and how many were refused " +
+                      "(those answer 503 with Retry-After)."
+    )
+    @APIResponses({
+        @APIResponse(responseCode = "200", description = "Limiter statistics",
+            content = @Content(examples = @ExampleObject(value = "{ \"limit\": 22, \"inFlight\": 9, \"queued\": 0, \"calls\": 15230, \"rejected\": 0 }"))
+        ),
+        @APIResponse(responseCode = "401", description = "Unauthenticated"),
+        @APIResponse(responseCode = "403", description = "Forbidden (missing `admin` role)")
+    })
+    public Response limiterStats() {
+        return Response.ok(kc.limiterStats()).build();
     }
 
     /* ====================== helpers (not exposed) ====================== */
 
-    private void assertCanModifyRoles(String targetUserId, List<String> roles) {
-        if (roles == null || roles.isEmpty()) throw new BadRequestException("roles required");
-        if (kc.userHasRealmRole(targetUserId, "admin")) {
-            throw new ForbiddenException("Administrator roles cannot be changed.");
+    static NewUser toNewUser(CreateUserReq u) {
+        if (u == null) return new NewUser(null, null, null, false, true);
+        return new NewUser(u.username, u.email, u.password,
+                u.emailVerified != null && u.emailVerified,
+                u.enabled == null || u.enabled,
+                u.realmRoles, u.groups);
+    }
+
+    /** Validates a bulk role request; true when it targets a search rather than a list of ids */
+    private boolean validateBulkRoles(BulkRolesReq req) {
+        if (req == null || req.roles == null || req.roles.isEmpty()) throw new BadRequestException("roles required");
+        boolean byIds = req.userIds != null && !req.userIds.isEmpty();
+        boolean bySearch = req.search != null && !req.search.isBlank();
+        if (byIds == bySearch) throw new BadRequestException("either userIds or search is required");
+        if (byIds && req.userIds.size() > kc.maxBatchSize()) {
+            throw new BadRequestException("At most " + kc.maxBatchSize() + " users per batch");
         }
+        assertNoAdminRole(req.roles);
+        return bySearch;
+    }
+
+    static boolean grantsAdmin(List<String> roles) {
+        return roles != null && roles.stream().anyMatch(r -> "admin".equalsIgnoreCase(r));
+    }
+
+    static void assertNoAdminRole(List<String> roles) {
+        if (grantsAdmin(roles)) throw new ForbiddenException(ADMIN_ROLE_FORBIDDEN);
+    }
+
+    private static void assertCanModifyRoles(List<String> roles) {
+        if (roles == null || roles.isEmpty()) throw new BadRequestException("roles required");
         boolean touchesAdminRole = roles.stream().anyMatch(r -> "admin".equalsIgnoreCase(r));
         if (touchesAdminRole) {
             throw new ForbiddenException("The ‘admin’ role cannot be assigned or removed with this endpoint.");
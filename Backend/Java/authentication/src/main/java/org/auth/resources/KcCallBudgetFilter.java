@@ -0,0 +1,48 @@
+package org.auth.resources;
+
+import org.auth.service.KcRequestCalls;
+import org.jboss.logging.Logger;
+import org.jboss.resteasy.reactive.server.ServerResponseFilter;
+import org.jboss.resteasy.reactive.server.SimpleResourceInfo;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerResponseContext;
+
+/**
+ * Reports the Keycloak call budget of each request: {@code X-Keycloak-Calls} (HTTP requests sent to Keycloak,
+ * as counted by the call limiter), {@code X-Keycloak-Time-Ms} (their summed duration) and {@code X-Keycloak-Memo-Hits}
+ * (reads answered from the request memo), plus a debug line per endpoint. Requests that never touched Keycloak
+ * get no headers; reads served from the caches count as no call.
+ *
+ * Streamed bodies (export, import, bulk enable) run after the headers are sent and are not counted, nor are the
+ * calls of coalesced role changes, which run on the coalescer's own subscription.
+ */
+public class KcCallBudgetFilter {
+
+    private static final Logger LOG = Logger.getLogger(KcCallBudgetFilter.class);
+
+    static final String CALLS = "X-Keycloak-Calls";
+    static final String TIME_MS = "X-Keycloak-Time-Ms";
+    static final String MEMO_HITS = "X-Keycloak-Memo-Hits";
+
+    private final KcRequestCalls calls;
+
+    @Inject
+    public KcCallBudgetFilter(KcRequestCalls calls) {
+        this.calls = calls;
+    }
+
+    @ServerResponseFilter
+    public void budget(ContainerResponseContext response, SimpleResourceInfo resource) {
+        if (calls.calls() == 0 && calls.memoHits() == 0) return;
+        long millis = calls.upstreamTime().toMillis();
+        response.getHeaders().putSingle(CALLS, calls.calls());
+        response.getHeaders().putSingle(TIME_MS, millis);
+        response.getHeaders().putSingle(MEMO_HITS, calls.memoHits());
+        if (resource != null && resource.getResourceClass() != null && LOG.isDebugEnabled()) {
+            LOG.debugf("%s.%s: %d Keycloak calls, %d ms, %d memoized reads",
+                    resource.getResourceClass().getSimpleName(), resource.getMethodName(),
+                    calls.calls(), millis, calls.memoHits());
+        }
+    }
+}
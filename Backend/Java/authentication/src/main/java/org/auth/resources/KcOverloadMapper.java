@@ -0,0 +1,21 @@
+package org.auth.resources;
+
+import org.auth.service.KcOverloadException;
+import org.jboss.resteasy.reactive.server.ServerExceptionMapper;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+import java.util.Map;
+
+/** Calls refused by the Keycloak call limiter answer 503 at once, asking the client to come back shortly. */
+public class KcOverloadMapper {
+
+    @ServerExceptionMapper
+    public Response overloaded(KcOverloadException e) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, 1)
+                .entity(Map.of("error", e.getMessage()))
+                .build();
+    }
+}
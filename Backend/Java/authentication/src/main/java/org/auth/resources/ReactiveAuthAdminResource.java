@@ -0,0 +1,177 @@
+package org.auth.resources;
+
+import org.auth.resources.AuthAdminResource.CreateUserReq;
+import org.auth.resources.AuthAdminResource.EnabledReq;
+import org.auth.resources.AuthAdminResource.PasswordReq;
+import org.auth.resources.AuthAdminResource.RolesReq;
+import org.auth.service.KcAdminReactiveService;
+import org.auth.service.RoleChangeCoalescer;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.*;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.security.SecurityRequirement;
+
+/**
+ * Same operations as {@link AuthAdminResource}, served on the event loop.
+ * Methods return {@link Uni} so Keycloak latency never holds a worker thread.
+ */
+@Path("/api/auth/reactive")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@Tag(name = "Auth Admin API (reactive)", description = "Non-blocking variant of the administrative user and realm role operations.")
+@SecurityRequirement(name = "bearerAuth")
+public class ReactiveAuthAdminResource {
+
+    private final KcAdminReactiveService kc;
+    private final RoleChangeCoalescer roleChanges;
+
+    @Inject
+    public ReactiveAuthAdminResource(KcAdminReactiveService kc, RoleChangeCoalescer roleChanges) {
+        this.kc = kc;
+        this.roleChanges = roleChanges;
+    }
+
+    /* ------------------------ POST /users ------------------------ */
+
+    @POST
+    @Path("/users")
+    @RolesAllowed({"admin"})
+    @Operation(summary = "Create a new user", description = "Creates a user in Keycloak with its initial password, groups and realm roles. Requires `admin` role.")
+    public Uni<Response> createUser(CreateUserReq req) {
+        if (req.username == null || req.email == null || req.password == null) {
+            throw new BadRequestException("username, email and password are required");
+        }
+        AuthAdminResource.assertNoAdminRole(req.realmRoles);
+        return kc.createUser(AuthAdminResource.toNewUser(req))
+                .map(id -> Response.status(Response.Status.CREATED)
+                        .entity(Map.of("id", id))
+                        .build());
+    }
+
+    /* -------------------- PUT /users/{id}/password -------------------- */
+
+    @PUT
+    @Path("/users/{id}/password")
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(summary = "Set or reset a user's password")
+    public Uni<Response> setPassword(
+        @Parameter(required = true, description = "User ID") @PathParam("id") String userId,
+        PasswordReq req
+    ) {
+        if (req.password == null) throw new BadRequestException("password is required");
+        return kc.setPassword(userId, req.password, req.temporary != null && req.temporary)
+                .map(v -> Response.noContent().build());
+    }
+
+    /* ------------------------ GET /users (list) ------------------------ */
+
+    @GET
+    @Path("/users")
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(summary = "List users", description = "Returns a raw JSON array from Keycloak's Admin API. Filtering and pagination are proxied.")
+    public Uni<Response> listUsers(
+        @QueryParam("q") String q,
+        @QueryParam("first") Integer first,
+        @QueryParam("max") Integer max
+    ) {
+        return kc.listUsersRaw(q, first, max)
+                .map(json -> Response.ok(json).type(MediaType.APPLICATION_JSON).build());
+    }
+
+    /* -------------------- GET /users/{id} (details) -------------------- */
+
+    @GET
+    @Path("/users/{id}")
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(summary = "Get user details", description = "Fetches a single user from Keycloak and injects their realm roles.")
+    public Uni<Response> getUser(@Parameter(required = true, description = "User ID") @PathParam("id") String userId) {
+        return kc.getUser(userId).map(user -> Response.ok(user).build());
+    }
+
+    /* -------------------- PUT /users/{id}/enabled -------------------- */
+
+    @PUT
+    @Path("/users/{id}/enabled")
+    @RolesAllowed({"admin","auth.admin"})
+    @UserMutation
+    @Operation(summary = "Enable or disable a user", description = "Sets the user's enabled status. The operation is forbidden for administrators.")
+    public Uni<Response> setEnabled(
+        @Parameter(required = true, description = "User ID") @PathParam("id") String userId,
+        EnabledReq req
+    ) {
+        if (req.enabled == null) throw new BadRequestException("enabled is required");
+
+        return kc.userHasRealmRole(userId, "admin").chain(isAdmin -> {
+            if (isAdmin) {
+                return Uni.createFrom().item(Response.status(Response.Status.FORBIDDEN)
+                        .entity(Map.of("error", "You cannot enable/disable an administrator.")).build());
+            }
+            Uni<Void> update = kc.setEnabled(userId, req.enabled);
+            if (!req.enabled) update = update.chain(() -> kc.logoutUser(userId));
+            return update.map(v -> Response.noContent().build());
+        });
+    }
+
+    /* -------------------- POST /users/{id}/roles/realm -------------------- */
+
+    @POST
+    @Path("/users/{id}/roles/realm")
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(summary = "Add realm roles to a user", description = "The `admin` role cannot be assigned via this endpoint.")
+    public Uni<Response> addRealmRoles(
+        @Parameter(required = true, description = "User ID") @PathParam("id") String userId,
+        RolesReq req
+    ) {
+        assertCanModifyRoles(req.roles);
+        // the coalescer checks the target and orders the change per user (no @UserMutation: see RoleChangeCoalescer)
+        return roleChanges.add(userId, req.roles).map(v -> Response.noContent().build());
+    }
+
+    /* -------------------- DELETE /users/{id}/roles/realm -------------------- */
+
+    @DELETE
+    @Path("/users/{id}/roles/realm")
+    @RolesAllowed({"admin","auth.admin"})
+    @Operation(summary = "Remove realm roles from a user", description = "The `admin` role cannot be removed via this endpoint.")
+    public Uni<Response> removeRealmRoles(
+        @Parameter(required = true, description = "User ID") @PathParam("id") String userId,
+        RolesReq req
+    ) {
+        assertCanModifyRoles(req.roles);
+        return roleChanges.remove(userId, req.roles).map(v -> Response.noContent().build());
+    }
+
+    /* -------------------- POST /users/{id}/promote-admin -------------------- */
+
+    @POST
+    @Path("/users/{id}/promote-admin")
+    @RolesAllowed({"admin","auth.admin"})
+    @UserMutation
+    @Operation(summary = "Promote user to admin", description = "Assigns the `admin` realm role, removes `Customer` if present, and removes the user from the `customers` group if applicable; the response lists what changed (207 with the failed steps when a step after the grant failed).")
+    public Uni<Response> promoteToAdmin(@Parameter(required = true, description = "User ID") @PathParam("id") String userId) {
+        return kc.promoteToAdmin(userId)
+                .map(changes -> changes
+                        .map(c -> Response.status(c.partial() ? AuthAdminResource.MULTI_STATUS : 200).entity(c).build())
+                        .orElseGet(() -> Response.status(Response.Status.CONFLICT)
+                                .entity(Map.of("error", "El usuario ya es admin")).build()));
+    }
+
+    /* ====================== helpers (not exposed) ====================== */
+
+    private static void assertCanModifyRoles(List<String> roles) {
+        if (roles == null || roles.isEmpty()) throw new BadRequestException("roles required");
+        if (roles.stream().anyMatch(r -> "admin".equalsIgnoreCase(r))) {
+            throw new ForbiddenException("The ‘admin’ role cannot be assigned or removed with this endpoint.");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.auth.resources;
+
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an endpoint that checks and then changes the user given by its {@code @PathParam("id")}: calls for the
+ * same user run one after the other, in arrival order (see {@link UserMutationInterceptor}).
+ */
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface UserMutation {
+}
@@ -0,0 +1,62 @@
+package org.auth.resources;
+
+import org.auth.service.UserMutations;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import jakarta.ws.rs.PathParam;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * Runs {@link UserMutation} endpoints in the user's turn of {@link UserMutations}, checks included: blocking
+ * endpoints wait on their thread; {@link Uni} endpoints are invoked at once and their Uni is subscribed to when
+ * the turn comes, so the turn covers all the work it describes.
+ */
+@UserMutation
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class UserMutationInterceptor {
+
+    @Inject
+    UserMutations mutations;
+
+    @AroundInvoke
+    @SuppressWarnings("unchecked")
+    Object inUserTurn(InvocationContext ctx) throws Exception {
+        String userId = userId(ctx);
+        if (Uni.class.isAssignableFrom(ctx.getMethod().getReturnType())) {
+            Uni<Object> work = (Uni<Object>) ctx.proceed();
+            return mutations.serialized(userId, () -> work);
+        }
+        try {
+            return mutations.locked(userId, () -> proceed(ctx));
+        } catch (UndeclaredThrowableException e) {
+            throw (Exception) e.getUndeclaredThrowable();
+        }
+    }
+    private static Object proceed(InvocationContext ctx) {
+        try {
+            return ctx.proceed();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static String userId(InvocationContext ctx) {
+        Annotation[][] params = ctx.getMethod().getParameterAnnotations();
+        for (int i = 0; i < params.length; i++) {
+            for (Annotation a : params[i]) {
+                if (a instanceof PathParam p && "id".equals(p.value())) return (String) ctx.getParameters()[i];
+            }
+        }
+        throw new IllegalStateException("@UserMutation needs a @PathParam(\"id\") parameter: " + ctx.getMethod());
+    }
+}
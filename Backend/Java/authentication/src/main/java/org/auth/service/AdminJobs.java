@@ -0,0 +1,213 @@
+package org.auth.service;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Long-running bulk operations run as jobs: submitting returns at once with a job id, the work runs on
+ * a dedicated bounded executor ({@code threads} workers, at most {@code queue-size} jobs waiting) that
+ * calls {@link KcAdminService}, and progress is read by polling or as a stream of snapshots.
+ *
+ * Jobs live in memory only; finished jobs are dropped after {@code retention}.
+ */
+@ApplicationScoped
+public class AdminJobs {
+
+    private static final Logger LOG = Logger.getLogger(AdminJobs.class);
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean finished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    /**
+     * Point-in-time view of a job. {@code processed} counts finished items (failed ones included);
+     * {@code total} and {@code remaining} are null when the targets are a search resolved while running.
+     */
+    public record Status(String id, String operation, State state, Integer total, int processed, int failed,
+                         Integer remaining, Instant createdAt, Instant finishedAt, String error) {
+    }
+
+    /** The job body: runs the operation on {@code kc}, reporting every finished item to {@code progress} */
+    @FunctionalInterface
+    public interface Work {
+        void run(KcAdminService kc, Consumer<BatchItemResult> progress);
+    }
+
+    @ConfigProperty(name = "keycloak.admin.jobs.threads", defaultValue = "2")
+    int threads;
+
+    @ConfigProperty(name = "keycloak.admin.jobs.queue-size", defaultValue = "20")
+    int queueSize;
+
+    @ConfigProperty(name = "keycloak.admin.jobs.retention", defaultValue = "1h")
+    Duration retention;
+
+    @ConfigProperty(name = "keycloak.admin.jobs.progress-interval", defaultValue = "1s")
+    Duration progressInterval;
+
+    @ConfigProperty(name = "keycloak.admin.jobs.max-items", defaultValue = "100000")
+    int maxItems;
+
+    @Inject
+    KcAdminService kc;
+
+    Clock clock = Clock.systemUTC();
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                Thread.ofPlatform().name("admin-job-", 0).daemon().factory());
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /** Largest number of items accepted by one job */
+    public int maxItems() {
+        return maxItems;
+    }
+
+    /**
+     * Queues a job; {@code total} is the number of items when known up front.
+     * @throws RejectedExecutionException when {@code queue-size} jobs are already waiting
+     */
+    public Status submit(String operation, Integer total, Work work) {
+        purgeExpired();
+        Job job = new Job(UUID.randomUUID().toString(), operation, total, work, clock.instant());
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(job);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+        LOG.infof("Job %s queued: %s (%s items)", job.id, operation, total == null ? "?" : total);
+        return job.status();
+    }
+
+    public Optional<Status> status(String id) {
+        purgeExpired();
+        return Optional.ofNullable(jobs.get(id)).map(Job::status);
+    }
+
+    /** Snapshots of the job every {@code progress-interval}, ending with the one in a finished state */
+    public Multi<Status> progress(String id) {
+        return Multi.createBy().repeating()
+                .uni(() -> Uni.createFrom().item(() -> status(id).orElse(null))
+                        .onItem().delayIt().by(progressInterval))
+                .whilst(s -> s != null && !s.state().finished())
+                .select().where(Objects::nonNull);
+    }
+
+    /**
+     * Requests cancellation: a queued job never starts, a running one is interrupted and stops before
+     * its next item (items already sent to Keycloak keep their effect). Empty when the job is unknown.
+     */
+    public Optional<Status> cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null) return Optional.empty();
+        job.cancel();
+        return Optional.of(job.status());
+    }
+
+    private void purgeExpired() {
+        Instant cutoff = clock.instant().minus(retention);
+        jobs.values().removeIf(j -> j.finishedAt != null && j.finishedAt.isBefore(cutoff));
+    }
+
+    private final class Job implements Runnable {
+        final String id;
+        final String operation;
+        final Integer total;
+        final Work work;
+        final Instant createdAt;
+
+        final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+        final AtomicBoolean cancelRequested = new AtomicBoolean();
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        volatile Instant finishedAt;
+        volatile String error;
+        volatile Future<?> future;
+
+        Job(String id, String operation, Integer total, Work work, Instant createdAt) {
+            this.id = id;
+            this.operation = operation;
+            this.total = total;
+            this.work = work;
+            this.createdAt = createdAt;
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(State.QUEUED, State.RUNNING)) return; // cancelled while queued
+            try {
+                work.run(kc, this::record);
+                finish(cancelRequested.get() ? State.CANCELLED : State.COMPLETED, null);
+            } catch (RuntimeException e) {
+                if (cancelRequested.get()) {
+                    finish(State.CANCELLED, null);
+                } else {
+                    LOG.warnf("Job %s failed: %s", id, e.getMessage());
+                    finish(State.FAILED, e.getMessage());
+                }
+            } finally {
+                Thread.interrupted(); // a cancel may have interrupted this pooled worker
+            }
+        }
+
+        private void record(BatchItemResult r) {
+            processed.incrementAndGet();
+            if (!r.succeeded()) failed.incrementAndGet();
+            if (cancelRequested.get()) throw new CancellationException("Job cancelled");
+        }
+
+        void cancel() {
+            if (state.get().finished() || !cancelRequested.compareAndSet(false, true)) return;
+            boolean queued = state.compareAndSet(State.QUEUED, State.CANCELLED);
+            if (queued) finishedAt = clock.instant();
+            Future<?> f = future;
+            if (f != null) f.cancel(!queued);
+        }
+
+        private void finish(State end, String message) {
+            error = message;
+            finishedAt = clock.instant();
+            state.set(end);
+            LOG.infof("Job %s %s: %d processed, %d failed", id, end, processed.get(), failed.get());
+        }
+
+        Status status() {
+            int done = processed.get();
+            return new Status(id, operation, state.get(), total, done, failed.get(),
+                    total == null ? null : total - done, createdAt, finishedAt, error);
+        }
+    }
+}
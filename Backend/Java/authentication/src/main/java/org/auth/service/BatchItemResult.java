@@ -0,0 +1,24 @@
+package org.auth.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one item of a bulk operation, in request order.
+ * {@code id} can be set together with {@code error} when only a follow-up step failed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchItemResult(int index, String id, Integer status, String error) {
+
+    public static BatchItemResult ok(int index, String id) {
+        return new BatchItemResult(index, id, null, null);
+    }
+
+    public static BatchItemResult failed(int index, String id, Throwable e) {
+        Integer status = e instanceof KcCallException kce ? kce.status() : null;
+        return new BatchItemResult(index, id, status, e.getMessage());
+    }
+
+    public boolean succeeded() {
+        return error == null;
+    }
+}
@@ -0,0 +1,221 @@
+package org.auth.service;
+
+import org.auth.client.GroupRepresentation;
+import org.auth.client.KeycloakAdminApi;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Group lookups without searching Keycloak on every call:
+ * <ul>
+ *   <li>group path (case-insensitive, e.g. {@code /customers/vip}) -&gt; group, loaded from the full group tree
+ *   at startup;</li>
+ *   <li>userId -&gt; ids of the groups the user is directly a member of (LRU + TTL).</li>
+ * </ul>
+ * Paths are unique in a realm, names are not: a lookup by name only ever resolves a top-level group.
+ * Membership entries are updated by the service's own writes.
+ */
+@ApplicationScoped
+public class GroupCache {
+
+    private static final Logger LOG = Logger.getLogger(GroupCache.class);
+
+    @ConfigProperty(name = "keycloak.admin.cache.groups.ttl", defaultValue = "10m")
+    Duration ttl;
+
+    @ConfigProperty(name = "keycloak.admin.cache.groups.preload", defaultValue = "true")
+    boolean preload;
+
+    @ConfigProperty(name = "keycloak.admin.cache.group-members.ttl", defaultValue = "30s")
+    Duration membersTtl;
+
+    @ConfigProperty(name = "keycloak.admin.cache.group-members.max-size", defaultValue = "10000")
+    int membersMaxSize;
+
+    @Inject
+    @RestClient
+    KeycloakAdminApi api;
+
+    @Inject
+    KcTokenManager tokens;
+
+    @Inject
+    KcAdminLimiter limiter;
+
+    Clock clock = Clock.systemUTC();
+
+    private final ConcurrentMap<String, CachedGroup> byPath = new ConcurrentHashMap<>();
+
+    private final ReentrantLock membersLock = new ReentrantLock();
+    private final LinkedHashMap<String, Members> members = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Members> eldest) {
+            return size() > membersMaxSize;
+        }
+    };
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!preload) return;
+        try {
+            reload().await().indefinitely();
+        } catch (RuntimeException e) {
+            // groups are then resolved by search on first use
+            LOG.warnf("Group preload failed: %s", e.getMessage());
+        }
+    }
+
+    /* =================== group names =================== */
+
+    /** Replaces the path index with every group of the realm (subgroups included); returns how many were loaded. */
+    public Uni<Integer> reload() {
+        return Uni.createFrom().completionStage(tokens::token)
+                .map(token -> "Bearer " + token)
+                .chain(bearer -> limiter.limit(api.listGroups(bearer, null, null)).chain(top -> flatten(bearer, "", top)))
+                .onFailure(WebApplicationException.class).transform(e -> KcCallException.of("List groups failed", e))
+                .map(all -> {
+                    Instant now = clock.instant();
+                    Map<String, CachedGroup> loaded = new HashMap<>();
+                    for (GroupRepresentation g : all) loaded.put(key(g.path), new CachedGroup(brief(g), now));
+                    byPath.clear();
+                    byPath.putAll(loaded);
+                    return all.size();
+                });
+    }
+
+    /** Level by level, so parents come before their children; fills in the path where the server left it out. */
+    private Uni<List<GroupRepresentation>> flatten(String bearer, String parentPath, List<GroupRepresentation> level) {
+        List<Uni<List<GroupRepresentation>>> below = new ArrayList<>();
+        for (GroupRepresentation g : level) {
+            if (g.path == null) g.path = parentPath + "/" + g.name;
+            if (g.subGroups != null && !g.subGroups.isEmpty()) {
+                below.add(flatten(bearer, g.path, g.subGroups));
+            } else if (g.subGroupCount != null && g.subGroupCount > 0) {
+                // Keycloak 23+ no longer inlines the tree; children are paged (default max is 10)
+                below.add(limiter.limit(api.getGroupChildren(bearer, g.id, 0, g.subGroupCount.intValue()))
+                        .chain(children -> flatten(bearer, g.path, children)));
+            }
+        }
+        if (below.isEmpty()) return Uni.createFrom().item(level);
+        return Uni.join().all(below).andFailFast()
+                .map(lists -> {
+                    List<GroupRepresentation> all = new ArrayList<>(level);
+                    lists.forEach(all::addAll);
+                    return all;
+                });
+    }
+
+    /** Cached top-level group with that exact name (case-insensitive); empty when unknown or expired. */
+    public Optional<GroupRepresentation> byName(String name) {
+        return byPath(topLevelPath(name));
+    }
+
+    /** Cached group with that exact path (case-insensitive); empty when unknown or expired. */
+    public Optional<GroupRepresentation> byPath(String path) {
+        CachedGroup e = byPath.get(key(path));
+        if (e != null && clock.instant().isBefore(e.loadedAt().plus(ttl))) return Optional.of(e.group());
+        return Optional.empty();
+    }
+
+    /** Caches a group found by search; one without a path is taken as top-level. */
+    public void put(GroupRepresentation group) {
+        GroupRepresentation b = brief(group);
+        if (b.path == null) b.path = topLevelPath(b.name);
+        byPath.put(key(b.path), new CachedGroup(b, clock.instant()));
+    }
+
+    /** Drops every path pointing at a group id Keycloak no longer knows. */
+    public void forgetGroup(String groupId) {
+        byPath.values().removeIf(e -> groupId.equals(e.group().id));
+    }
+
+    public int size() {
+        return byPath.size();
+    }
+
+    static String topLevelPath(String name) {
+        return "/" + name;
+    }
+
+    /* =================== memberships =================== */
+
+    /** Ids of the user's groups; empty when not cached or expired. */
+    public Optional<Set<String>> memberships(String userId) {
+        membersLock.lock();
+        try {
+            Members m = members.get(userId);
+            if (m != null && clock.instant().isBefore(m.loadedAt().plus(membersTtl))) return Optional.of(m.groupIds());
+            if (m != null) members.remove(userId);
+            return Optional.empty();
+        } finally {
+            membersLock.unlock();
+        }
+    }
+
+    public void putMemberships(String userId, Collection<GroupRepresentation> groups) {
+        Set<String> ids = new HashSet<>();
+        for (GroupRepresentation g : groups) ids.add(g.id);
+        membersLock.lock();
+        try {
+            members.put(userId, new Members(Set.copyOf(ids), clock.instant()));
+        } finally {
+            membersLock.unlock();
+        }
+    }
+
+    /** Write-through after the user was removed from the group. */
+    public void left(String userId, String groupId) {
+        membersLock.lock();
+        try {
+            Members m = members.get(userId);
+            if (m == null) return;
+            Set<String> ids = new HashSet<>(m.groupIds());
+            ids.remove(groupId);
+            members.put(userId, new Members(Set.copyOf(ids), m.loadedAt()));
+        } finally {
+            membersLock.unlock();
+        }
+    }
+
+    public void invalidateMemberships(String userId) {
+        membersLock.lock();
+        try {
+            members.remove(userId);
+        } finally {
+            membersLock.unlock();
+        }
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static GroupRepresentation brief(GroupRepresentation g) {
+        GroupRepresentation b = new GroupRepresentation();
+        b.id = g.id;
+        b.name = g.name;
+        b.path = g.path;
+        return b;
+    }
+
+    private record CachedGroup(GroupRepresentation group, Instant loadedAt) {
+    }
+
+    private record Members(Set<String> groupIds, Instant loadedAt) {
+    }
+}
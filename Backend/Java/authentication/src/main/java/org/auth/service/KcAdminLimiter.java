@@ -0,0 +1,193 @@
+package org.auth.service;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.WebApplicationException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive bound on concurrent Keycloak Admin API calls (AIMD), so that admin bursts and bulk jobs cannot
+ * overload the identity server that also serves the customer logins.
+ *
+ * Every call that answers within {@code latency-threshold} raises the limit by 1/limit (about +1 per round of
+ * calls, up to {@code max-limit}); a slower answer, a 429/502/503/504 or a connection failure multiplies it by
+ * {@code backoff} (at most once per threshold period, down to {@code min-limit}). Calls above the limit wait
+ * in FIFO order; once {@code queue-size} are waiting, new calls fail at once with {@link KcOverloadException}.
+ */
+@ApplicationScoped
+public class KcAdminLimiter {
+
+    private static final Logger LOG = Logger.getLogger(KcAdminLimiter.class);
+
+    @ConfigProperty(name = "keycloak.admin.limiter.initial-limit", defaultValue = "16")
+    int initialLimit;
+
+    @ConfigProperty(name = "keycloak.admin.limiter.min-limit", defaultValue = "4")
+    int minLimit;
+
+    @ConfigProperty(name = "keycloak.admin.limiter.max-limit", defaultValue = "64")
+    int maxLimit;
+
+    @ConfigProperty(name = "keycloak.admin.limiter.queue-size", defaultValue = "500")
+    int queueSize;
+
+    @ConfigProperty(name = "keycloak.admin.limiter.latency-threshold", defaultValue = "500ms")
+    Duration latencyThreshold;
+
+    @ConfigProperty(name = "keycloak.admin.limiter.backoff", defaultValue = "0.9")
+    double backoff;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Ticket> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long lastDecrease;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        limit = initialLimit;
+        lastDecrease = System.nanoTime() - latencyThreshold.toNanos();
+    }
+
+    /** A limiter with fixed settings, for code that builds the services by hand */
+    static KcAdminLimiter of(int initialLimit, int minLimit, int maxLimit, int queueSize, Duration latencyThreshold) {
+        KcAdminLimiter limiter = new KcAdminLimiter();
+        limiter.initialLimit = initialLimit;
+        limiter.minLimit = minLimit;
+        limiter.maxLimit = maxLimit;
+        limiter.queueSize = queueSize;
+        limiter.latencyThreshold = latencyThreshold;
+        limiter.backoff = 0.9;
+        limiter.start();
+        return limiter;
+    }
+
+    /**
+     * Subscribes to {@code call} (a lazy REST client Uni) once a slot is free. Fails with
+     * {@link KcOverloadException} when the queue is full; cancelling while queued gives up the place.
+     * A call that was sent is reported to the {@link KcRequestCalls} found in the subscriber's context, if any.
+     */
+    public <T> Uni<T> limit(Uni<T> call) {
+        return Uni.createFrom().context(ctx -> {
+            KcRequestCalls budget = ctx.getOrElse(KcRequestCalls.CONTEXT_KEY, () -> null);
+            Ticket t = enter();
+            // a copy, so that cancelling the wait never completes the ticket itself
+            return Uni.createFrom().completionStage(t.granted::copy)
+                    .chain(() -> {
+                        t.startedAt = System.nanoTime();
+                        return call;
+                    })
+                    .onTermination().invoke((item, failure, cancelled) -> {
+                        if (budget != null && t.startedAt != 0) budget.sent(System.nanoTime() - t.startedAt);
+                        leave(t, failure, cancelled);
+                    });
+        });
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats((int) limit, inFlight, queue.size(), calls.sum(), rejected.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** {@code limit}: current concurrency limit; {@code calls}: calls started so far; {@code rejected}: refused with the queue full */
+    public record Stats(int limit, int inFlight, int queued, long calls, long rejected) {
+    }
+
+    private Ticket enter() {
+        Ticket t = new Ticket();
+        lock.lock();
+        try {
+            if (queue.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                calls.increment();
+                t.holdsSlot = true;
+                t.granted.complete(null);
+            } else if (queue.size() >= queueSize) {
+                rejected.increment();
+                throw new KcOverloadException(inFlight, queue.size());
+            } else {
+                queue.add(t);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return t;
+    }
+
+    private void leave(Ticket t, Throwable failure, boolean cancelled) {
+        List<Ticket> next;
+        lock.lock();
+        try {
+            if (!t.holdsSlot) { // gave up while queued
+                queue.remove(t);
+                return;
+            }
+            inFlight--;
+            if (t.startedAt != 0 && !cancelled) adapt(System.nanoTime() - t.startedAt, failure);
+            next = new ArrayList<>();
+            while (!queue.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                calls.increment();
+                Ticket n = queue.poll();
+                n.holdsSlot = true;
+                next.add(n);
+            }
+        } finally {
+            lock.unlock();
+        }
+        // outside the lock: completing a ticket starts its call right here (it may also be cancelled meanwhile,
+        // its leave then gives the slot back as holdsSlot is already set)
+        next.forEach(n -> n.granted.complete(null));
+    }
+
+    /** Called with the lock held */
+    private void adapt(long latencyNanos, Throwable failure) {
+        long threshold = latencyThreshold.toNanos();
+        if (latencyNanos <= threshold && !overloaded(failure)) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - lastDecrease < threshold) return; // one decrease per period, not one per slow call
+        lastDecrease = now;
+        double before = limit;
+        limit = Math.max(minLimit, limit * backoff);
+        if ((int) before != (int) limit) {
+            LOG.debugf("Keycloak admin call limit %d -> %d (%d ms%s)", (int) before, (int) limit,
+                    latencyNanos / 1_000_000, failure == null ? "" : ", " + failure.getClass().getSimpleName());
+        }
+    }
+
+    /** Keycloak (or the way to it) is struggling, as opposed to an ordinary 4xx answer */
+    private static boolean overloaded(Throwable failure) {
+        if (failure == null) return false;
+        if (!(failure instanceof WebApplicationException e)) return true; // timeout, connection refused, ...
+        int status = e.getResponse().getStatus();
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    private static final class Ticket {
+        final CompletableFuture<Void> granted = new CompletableFuture<>();
+        /** Counted in {@code inFlight}; guarded by the lock, set before {@code granted} is completed */
+        boolean holdsSlot;
+        volatile long startedAt;
+    }
+}
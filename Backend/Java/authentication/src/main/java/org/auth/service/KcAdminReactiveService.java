@@ -0,0 +1,639 @@
+package org.auth.service;
+
+import org.auth.client.CredentialRepresentation;
+import org.auth.client.GroupRepresentation;
+import org.auth.client.KeycloakAdminApi;
+import org.auth.client.RoleRepresentation;
+import org.auth.client.UserRepresentation;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.ws.rs.WebApplicationException;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Non-blocking counterpart of {@link KcAdminService}.
+ * Every call goes through the Uni-returning typed client, so no thread waits on Keycloak.
+ */
+@ApplicationScoped
+public class KcAdminReactiveService {
+
+    @Inject
+    @RestClient
+    KeycloakAdminApi api;
+
+    @Inject
+    KcTokenManager tokens;
+
+    @Inject
+    KcAdminLimiter limiter;
+
+    @Inject
+    RealmRoleCache roleCache;
+
+    @Inject
+    UserRoleCache userRoles;
+
+    @Inject
+    RoleMappingEndpoint endpoint;
+
+    @Inject
+    GroupCache groups;
+
+    @Inject
+    UserCache users;
+
+    @Inject
+    UserMutations mutations;
+
+    @ConfigProperty(name = "keycloak.admin.batch.concurrency", defaultValue = "8")
+    int batchConcurrency;
+
+    @ConfigProperty(name = "keycloak.admin.bulk-enabled.write-concurrency", defaultValue = "16")
+    int enableWriteConcurrency;
+
+    @ConfigProperty(name = "keycloak.admin.bulk-enabled.logout-concurrency", defaultValue = "16")
+    int logoutConcurrency;
+
+    @ConfigProperty(name = "keycloak.admin.lookup.concurrency", defaultValue = "8")
+    int lookupConcurrency;
+
+    @ConfigProperty(name = "keycloak.admin.export.page-size", defaultValue = "500")
+    int searchPageSize;
+
+    @ConfigProperty(name = "keycloak.admin.list.role-index.skip", defaultValue = "offline_access,uma_authorization")
+    Set<String> indexSkippedRoles;
+
+    @ConfigProperty(name = "keycloak.admin.list.role-index.large-role-ttl", defaultValue = "10m")
+    Duration largeRoleTtl;
+
+    @ConfigProperty(name = "keycloak.admin.create.inline-credentials", defaultValue = "true")
+    boolean inlineCredentials;
+
+    @ConfigProperty(name = "keycloak.admin.create.inline-groups", defaultValue = "true")
+    boolean inlineGroups;
+
+    Clock clock = Clock.systemUTC();
+
+    /** Realm roles seen with at least {@code members} members: pages of that size or more cannot be indexed */
+    private final ConcurrentMap<String, LargeRole> largeRoles = new ConcurrentHashMap<>();
+
+    /* =================== helpers =================== */
+
+    private <T> Uni<T> authed(Function<String, Uni<T>> call, String failure) {
+        return Uni.createFrom().completionStage(tokens::token)
+                .chain(token -> limiter.limit(call.apply("Bearer " + token)))
+                .onFailure(WebApplicationException.class).transform(e -> KcCallException.of(failure, e));
+    }
+
+    /* =================== users =================== */
+
+    /**
+     * Create user and bring back the userId. Password and groups travel inline in the create
+     * request (one Keycloak write); realm roles are not accepted there and need a follow-up call.
+     */
+    public Uni<String> createUser(NewUser user) {
+        return insertUser(user).call(id -> completeUser(id, user));
+    }
+
+    private Uni<String> insertUser(NewUser u) {
+        UserRepresentation user = new UserRepresentation();
+        user.username = u.username();
+        user.email = u.email();
+        user.emailVerified = u.emailVerified();
+        user.enabled = u.enabled();
+        if (inlineCredentials && u.password() != null) {
+            user.credentials = List.of(CredentialRepresentation.password(u.password(), false));
+        }
+        if (inlineGroups && !u.groups().isEmpty()) {
+            user.groups = u.groups().stream().map(KcAdminReactiveService::groupPath).toList();
+        }
+
+        return authed(b -> api.createUser(b, user), "Create user failed")
+                .map(res -> {
+                    String location = res.getLocation().getPath(); // .../users/{id}
+                    return location.substring(location.lastIndexOf('/') + 1);
+                });
+    }
+
+    /** Whatever the create request could not carry */
+    private Uni<Void> completeUser(String userId, NewUser u) {
+        Uni<Void> steps = Uni.createFrom().voidItem();
+        if (!inlineCredentials && u.password() != null) {
+            steps = steps.call(() -> setPassword(userId, u.password(), false));
+        }
+        if (!inlineGroups) {
+            for (String group : u.groups()) steps = steps.call(() -> joinGroup(userId, group));
+        }
+        if (!u.realmRoles().isEmpty()) {
+            steps = steps.call(() -> addRealmRoles(userId, u.realmRoles()));
+        }
+        return steps;
+    }
+
+    private Uni<Void> joinGroup(String userId, String group) {
+        return findGroupByPath(groupPath(group))
+                .chain(g -> g.isPresent()
+                        ? authed(b -> api.joinGroup(b, userId, g.get().id), "Join group failed")
+                        : Uni.createFrom().failure(new KcCallException("Group not found: " + group, 404)));
+    }
+
+    /** Keycloak expects group paths on create; a bare name means a top-level group */
+    private static String groupPath(String group) {
+        return group.startsWith("/") ? group : "/" + group;
+    }
+
+    /**
+     * Creates every user (see {@link #createUser(NewUser)}), with at most {@code batchConcurrency} users in flight.
+     * A failing item never fails the batch; results come back in request order.
+     */
+    public Uni<List<BatchItemResult>> createUsers(List<NewUser> users) {
+        return createUsersAsCompleted(users)
+                .collect().asList()
+                .map(KcAdminReactiveService::inOrder);
+    }
+
+    /** Same as {@link #createUsers}, emitting each result as soon as it is known (completion order) */
+    public Multi<BatchItemResult> createUsersAsCompleted(List<NewUser> users) {
+        return Multi.createFrom().range(0, users.size())
+                .onItem().transformToUni(i -> provision(i, users.get(i)))
+                .merge(batchConcurrency);
+    }
+
+    /** Creates one item of a bulk request; never fails, errors are part of the result */
+    Uni<BatchItemResult> provision(int index, NewUser u) {
+        if (u.username() == null || u.email() == null || u.password() == null) {
+            return Uni.createFrom().item(new BatchItemResult(index, null, 400, "username, email and password are required"));
+        }
+        return insertUser(u)
+                .chain(id -> completeUser(id, u)
+                        .replaceWith(BatchItemResult.ok(index, id))
+                        // the user exists at this point: report its id with the follow-up failure
+                        .onFailure().recoverWithItem(e -> BatchItemResult.failed(index, id, e)))
+                .onFailure().recoverWithItem(e -> BatchItemResult.failed(index, null, e));
+    }
+
+    /** Set/Reset password */
+    public Uni<Void> setPassword(String userId, String password, boolean temporary) {
+        CredentialRepresentation cred = CredentialRepresentation.password(password, temporary);
+        return authed(b -> api.resetPassword(b, userId, cred), "Set password failed");
+    }
+
+    /** Search/simple list of users */
+    public Uni<Buffer> listUsersRaw(String q, Integer first, Integer max) {
+        String search = (q != null && !q.isBlank()) ? q : null;
+        return authed(b -> api.listUsers(b, search, first, max), "List users failed");
+    }
+
+    /**
+     * Get single user with realm roles injected. Both lookups run concurrently and fail fast:
+     * when the user fetch fails (e.g. 404) the pending role fetch is cancelled.
+     */
+    public Uni<JsonObject> getUser(String userId) {
+        Uni<JsonObject> base = authed(b -> api.getUser(b, userId), "Get user failed");
+        // a 404 on the role side means the user is gone: leave it to the user fetch to report it
+        Uni<Optional<List<String>>> roles = getUserRealmRoles(userId)
+                .map(Optional::of)
+                .onFailure(e -> e instanceof KcCallException kce && kce.status() == 404)
+                .recoverWithItem(Optional.empty());
+
+        return Uni.combine().all().unis(base, roles)
+                .asTuple()
+                .map(t -> {
+                    List<String> names = t.getItem2().orElseThrow(() ->
+                            new KcCallException("Get user realm roles failed: 404", 404));
+                    JsonArrayBuilder ab = Json.createArrayBuilder();
+                    names.forEach(ab::add);
+                    return Json.createObjectBuilder(t.getItem1())
+                            .add("realmRoles", ab.build())
+                            .build();
+                });
+    }
+
+    /**
+     * Several users at once, keyed by id (first-seen order). Duplicates are fetched once, cached
+     * representations ({@link UserCache}) and role lists ({@link UserRoleCache}) are reused, and the
+     * rest is fetched with at most {@code lookupConcurrency} users in flight. Unknown ids are left out.
+     */
+    public Uni<Map<String, JsonObject>> lookupUsers(Collection<String> userIds) {
+        List<String> unique = userIds.stream()
+                .filter(id -> id != null && !id.isBlank())
+                .distinct()
+                .toList();
+        return Multi.createFrom().iterable(unique)
+                .onItem().transformToUni(id -> lookupUser(id)
+                        .map(user -> Map.entry(id, user))
+                        .onFailure(e -> e instanceof KcCallException kce && kce.status() == 404).recoverWithNull())
+                .merge(lookupConcurrency)
+                .collect().asMap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(found -> {
+                    Map<String, JsonObject> ordered = new LinkedHashMap<>();
+                    unique.forEach(id -> { if (found.containsKey(id)) ordered.put(id, found.get(id)); });
+                    return ordered;
+                });
+    }
+
+    private Uni<JsonObject> lookupUser(String userId) {
+        Uni<JsonObject> base = users.get(userId)
+                .map(cached -> Uni.createFrom().item(cached))
+                .orElseGet(() -> authed(b -> api.getUser(b, userId), "Get user failed")
+                        .invoke(user -> users.put(userId, user)));
+        return Uni.combine().all().unis(base, getUserRealmRoles(userId))
+                .asTuple()
+                .map(t -> Json.createObjectBuilder(t.getItem1())
+                        .add("realmRoles", Json.createArrayBuilder(t.getItem2()))
+                        .build());
+    }
+
+    /** Enable/Disable user (partial update is accepted by Keycloak) */
+    public Uni<Void> setEnabled(String userId, boolean enabled) {
+        UserRepresentation patch = new UserRepresentation();
+        patch.enabled = enabled;
+        return authed(b -> api.updateUser(b, userId, patch), "Set enabled failed")
+                .invoke(() -> users.invalidate(userId));
+    }
+
+    /**
+     * Enables or disables many users; when disabling, their sessions are logged out as well.
+     * Two pipelined stages, each with its own bound: admin guard and enable write in the user's
+     * {@link UserMutations} turn ({@code enableWriteConcurrency}), then logout ({@code logoutConcurrency}).
+     * Emits one result per user as soon as it is finished (completion order, carrying the input index).
+     */
+    public Multi<BatchItemResult> bulkSetEnabled(Multi<String> userIds, boolean enabled) {
+        Multi<BatchItemResult> written = indexed(userIds)
+                .onItem().transformToUni(u -> mutations.serialized(u.userId(), () ->
+                        adminGuard(u, "You cannot enable/disable an administrator.")
+                                .chain(r -> next(r, setEnabled(r.id(), enabled)))))
+                .merge(enableWriteConcurrency);
+        if (enabled) return written;
+        return written
+                .onItem().transformToUni(r -> next(r, logoutUser(r.id())))
+                .merge(logoutConcurrency);
+    }
+
+    /** Runs {@code step} for a user still in progress; finished (skipped or failed) results pass through */
+    private static Uni<BatchItemResult> next(BatchItemResult r, Uni<Void> step) {
+        if (!r.succeeded()) return Uni.createFrom().item(r);
+        return step.replaceWith(r)
+                .onFailure().recoverWithItem(e -> BatchItemResult.failed(r.index(), r.id(), e));
+    }
+
+    /* =================== realm roles =================== */
+
+    /** Return realm roles (names) assigned to a user; served from {@link UserRoleCache} when fresh */
+    public Uni<List<String>> getUserRealmRoles(String userId) {
+        Optional<List<String>> cached = userRoles.get(userId);
+        if (cached.isPresent()) return Uni.createFrom().item(cached.get());
+
+        long generation = userRoles.generation(userId);
+        return Uni.createFrom().completionStage(tokens::token)
+                .map(token -> "Bearer " + token)
+                .chain(bearer -> endpoint.known() == RoleMappingEndpoint.Variant.PLAIN
+                        ? plainRealmRoles(bearer, userId)
+                        : effectiveRealmRoles(bearer, userId))
+                .map(roles -> roles.stream().map(r -> r.name).collect(Collectors.toList()))
+                .invoke(names -> userRoles.put(userId, generation, names));
+    }
+
+    // 1) composite endpoint first, 2) plain mapping on 404 (remembered for later calls)
+    private Uni<List<RoleRepresentation>> effectiveRealmRoles(String bearer, String userId) {
+        return limiter.limit(api.getEffectiveRealmRoles(bearer, userId))
+                .invoke(() -> endpoint.record(RoleMappingEndpoint.Variant.COMPOSITE))
+                .onFailure(e -> RoleMappingEndpoint.status(e) == 404)
+                .recoverWithUni(() -> limiter.limit(api.getRealmRoleMappings(bearer, userId))
+                        .onFailure(WebApplicationException.class)
+                        .transform(e -> KcCallException.of("Get user realm roles failed", e))
+                        .invoke(() -> endpoint.record(RoleMappingEndpoint.Variant.PLAIN)))
+                .onFailure(WebApplicationException.class).transform(e -> {
+                    endpoint.unexpected(RoleMappingEndpoint.status(e));
+                    return KcCallException.of("Get user realm roles (composite) failed", e);
+                });
+    }
+
+    private Uni<List<RoleRepresentation>> plainRealmRoles(String bearer, String userId) {
+        return limiter.limit(api.getRealmRoleMappings(bearer, userId))
+                .onFailure(WebApplicationException.class).transform(e -> {
+                    endpoint.unexpected(RoleMappingEndpoint.status(e));
+                    return KcCallException.of("Get user realm roles failed", e);
+                });
+    }
+
+    /**
+     * Realm roles mapped to the user directly (the plain role-mappings/realm read: no composites, no groups).
+     * Not cached; for writes that need to know which mappings exist.
+     */
+    public Uni<List<String>> directRealmRoles(String userId) {
+        return authed(b -> api.getRealmRoleMappings(b, userId), "Get user realm roles failed")
+                .map(roles -> roles.stream().map(r -> r.name).collect(Collectors.toList()));
+    }
+
+    public Uni<Boolean> userHasRealmRole(String userId, String roleName) {
+        return getUserRealmRoles(userId)
+                .map(roles -> roles.stream().anyMatch(r -> r.equalsIgnoreCase(roleName)));
+    }
+
+    public Uni<Void> addRealmRoles(String userId, List<String> roles) {
+        return roleCache.getAllAsync(roles)
+                .chain(reps -> changeRealmRoles(userId, reps, true))
+                .onFailure(e -> e instanceof KcCallException kce && kce.status() == 404)
+                .invoke(() -> roles.forEach(roleCache::invalidate));
+    }
+
+    public Uni<Void> removeRealmRoles(String userId, List<String> roles) {
+        return roleCache.getAllAsync(roles)
+                .chain(reps -> changeRealmRoles(userId, reps, false))
+                .onFailure(e -> e instanceof KcCallException kce && kce.status() == 404)
+                .invoke(() -> roles.forEach(roleCache::invalidate));
+    }
+
+    /** Role-mapping write with already resolved representations; keeps {@link UserRoleCache} in step */
+    private Uni<Void> changeRealmRoles(String userId, List<RoleRepresentation> reps, boolean add) {
+        return add
+                ? authed(b -> api.addRealmRoleMappings(b, userId, reps), "Add realm roles failed")
+                        .invoke(() -> userRoles.added(userId, reps))
+                : authed(b -> api.removeRealmRoleMappings(b, userId, reps), "Remove realm roles failed")
+                        .invoke(() -> userRoles.invalidate(userId));
+    }
+
+    /**
+     * Adds ({@code add}) or removes realm roles for many users. Role representations are resolved once;
+     * then each user is checked (administrators are skipped with 403) and written, with at most
+     * {@code batchConcurrency} users in flight. Results are per user, in input order.
+     */
+    public Uni<List<BatchItemResult>> bulkRealmRoles(Multi<String> userIds, List<String> roles, boolean add) {
+        return bulkRealmRolesAsCompleted(userIds, roles, add)
+                .collect().asList()
+                .map(KcAdminReactiveService::inOrder);
+    }
+
+    /** Same as {@link #bulkRealmRoles}, emitting each result as soon as it is known (completion order) */
+    public Multi<BatchItemResult> bulkRealmRolesAsCompleted(Multi<String> userIds, List<String> roles, boolean add) {
+        return roleCache.getAllAsync(roles)
+                .onItem().transformToMulti(reps -> indexed(userIds)
+                        .onItem().transformToUni(u -> mutations.serialized(u.userId(), () ->
+                                adminGuard(u, "Administrator roles cannot be changed.")
+                                        .chain(r -> next(r, changeRealmRoles(r.id(), reps, add)))))
+                        .merge(batchConcurrency));
+    }
+
+    /** Ok (still in progress) for a regular user; 403 with {@code forbidden} for an administrator */
+    private Uni<BatchItemResult> adminGuard(IndexedUser u, String forbidden) {
+        return userHasRealmRole(u.userId(), "admin")
+                .map(isAdmin -> isAdmin
+                        ? new BatchItemResult(u.index(), u.userId(), 403, forbidden)
+                        : BatchItemResult.ok(u.index(), u.userId()))
+                .onFailure().recoverWithItem(e -> BatchItemResult.failed(u.index(), u.userId(), e));
+    }
+
+    /** Ids of every user matching {@code search}, paged from Keycloak as they are consumed */
+    public Multi<String> matchingUserIds(String search) {
+        return pagedUserIds((b, first) -> api.listUsers(b, search, first, searchPageSize), "List users failed");
+    }
+
+    /**
+     * One page of users with their realm roles joined in as {@code realmRoles}. Instead of a role lookup
+     * per user, the members of each realm role (roles in {@code indexSkippedRoles} aside) are listed with one
+     * call capped just above the page size, and inverted into userId -&gt; roles; roles there are the direct
+     * mappings. A role with more members than the page would need a full listing, so then the page falls
+     * back to each user's direct mappings ({@link #directRealmRoles}). Such a role is remembered for
+     * {@code largeRoleTtl}, and pages it would overflow go straight to the fallback without listing any role.
+     */
+    public Uni<JsonArray> listUsersWithRealmRoles(String search, Integer first, Integer max) {
+        return authed(b -> api.listUsers(b, search, first, max), "List users failed")
+                .map(KcAdminService::readArray)
+                .chain(page -> {
+                    Set<String> ids = page.getValuesAs(JsonObject.class).stream()
+                            .map(u -> u.getString("id"))
+                            .collect(Collectors.toCollection(LinkedHashSet::new));
+                    if (ids.isEmpty()) return Uni.createFrom().item(page);
+                    if (knownLargeRole(ids.size() + 1)) return userRealmRoles(ids).map(index -> joinRealmRoles(page, index));
+                    return realmRoleIndex(ids)
+                            .chain(index -> index.isPresent() ? Uni.createFrom().item(index.get()) : userRealmRoles(ids))
+                            .map(index -> joinRealmRoles(page, index));
+                });
+    }
+
+    /**
+     * userId -&gt; realm role names (sorted) for the given users, from one member listing per role of at most
+     * {@code userIds.size() + 1} members. Empty when a role has more members than that, as its listing is then incomplete.
+     */
+    private Uni<Optional<Map<String, List<String>>>> realmRoleIndex(Set<String> userIds) {
+        int cap = userIds.size() + 1;
+        return authed(api::listRealmRoles, "List realm roles failed")
+                .onItem().transformToMulti(roles -> Multi.createFrom().iterable(roles))
+                .select().where(role -> !indexSkippedRoles.contains(role.name))
+                .onItem().transformToUni(role -> authed(b -> api.getRealmRoleUsers(b, role.name, 0, cap), "List role users failed")
+                        .map(KcAdminService::readArray)
+                        .map(members -> {
+                            if (members.size() >= cap) {
+                                largeRoles.merge(role.name, new LargeRole(cap, clock.instant()),
+                                        (seen, now) -> new LargeRole(Math.max(seen.members(), now.members()), now.seenAt()));
+                                return Optional.<Map.Entry<String, List<String>>>empty();
+                            }
+                            return Optional.of(Map.entry(role.name, members.getValuesAs(JsonObject.class).stream()
+                                    .map(u -> u.getString("id"))
+                                    .filter(userIds::contains)
+                                    .toList()));
+                        }))
+                .merge(batchConcurrency)
+                .collect().asList()
+                .map(roles -> {
+                    if (roles.stream().anyMatch(Optional::isEmpty)) return Optional.empty();
+                    Map<String, List<String>> index = new HashMap<>();
+                    roles.forEach(role -> role.get().getValue()
+                            .forEach(id -> index.computeIfAbsent(id, k -> new ArrayList<>()).add(role.get().getKey())));
+                    index.values().forEach(Collections::sort);
+                    return Optional.of(index);
+                });
+    }
+
+    /** Whether a role seen within {@code largeRoleTtl} has at least {@code cap} members */
+    private boolean knownLargeRole(int cap) {
+        Instant since = clock.instant().minus(largeRoleTtl);
+        largeRoles.values().removeIf(r -> r.seenAt().isBefore(since));
+        return largeRoles.values().stream().anyMatch(r -> r.members() >= cap);
+    }
+
+    /** Fallback of {@link #realmRoleIndex}: each user's direct realm roles (sorted, skipped roles left out), {@code lookupConcurrency} at a time */
+    private Uni<Map<String, List<String>>> userRealmRoles(Set<String> userIds) {
+        return Multi.createFrom().iterable(userIds)
+                .onItem().transformToUni(id -> directRealmRoles(id)
+                        .map(roles -> Map.entry(id, roles.stream()
+                                .filter(r -> !indexSkippedRoles.contains(r))
+                                .sorted()
+                                .toList())))
+                .merge(lookupConcurrency)
+                .collect().asMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    private static JsonArray joinRealmRoles(JsonArray page, Map<String, List<String>> index) {
+        JsonArrayBuilder out = Json.createArrayBuilder();
+        for (JsonObject user : page.getValuesAs(JsonObject.class)) {
+            List<String> roles = index.getOrDefault(user.getString("id"), List.of());
+            out.add(Json.createObjectBuilder(user).add("realmRoles", Json.createArrayBuilder(roles)));
+        }
+        return out.build();
+    }
+
+    /** Ids from a paged Keycloak user listing ({@code searchPageSize} per call), fetched as they are consumed */
+    private Multi<String> pagedUserIds(BiFunction<String, Integer, Uni<Buffer>> listing, String failure) {
+        AtomicInteger first = new AtomicInteger();
+        return Multi.createBy().repeating()
+                .uni(() -> authed(b -> listing.apply(b, first.get()), failure)
+                        .map(KcAdminService::readArray)
+                        .invoke(page -> first.addAndGet(page.size())))
+                .whilst(page -> page.size() == searchPageSize)
+                .onItem().transformToIterable(page -> page.getValuesAs(JsonObject.class).stream()
+                        .map(u -> u.getString("id"))
+                        .toList());
+    }
+
+    private record IndexedUser(int index, String userId) {
+    }
+
+    private record LargeRole(int members, Instant seenAt) {
+    }
+
+    private static Multi<IndexedUser> indexed(Multi<String> userIds) {
+        AtomicInteger next = new AtomicInteger();
+        return userIds.map(id -> new IndexedUser(next.getAndIncrement(), id));
+    }
+
+    private static List<BatchItemResult> inOrder(List<BatchItemResult> results) {
+        List<BatchItemResult> ordered = new ArrayList<>(results);
+        ordered.sort(Comparator.comparingInt(BatchItemResult::index));
+        return ordered;
+    }
+
+    /* =================== sessions =================== */
+
+    public Uni<Void> logoutUser(String userId) {
+        return authed(b -> api.logout(b, userId), "Logout failed");
+    }
+
+    /* =================== groups =================== */
+
+    public Uni<Optional<GroupRepresentation>> findGroupByName(String name) {
+        Optional<GroupRepresentation> cached = groups.byName(name);
+        if (cached.isPresent()) return Uni.createFrom().item(cached);
+
+        return authed(b -> api.searchGroups(b, name), "Find group failed")
+                .map(found -> found.stream()
+                        .filter(g -> name.equalsIgnoreCase(g.name))
+                        .findFirst())
+                .invoke(found -> found.ifPresent(groups::put));
+    }
+
+    /** Group at that full path (e.g. {@code /customers/vip}); served from {@link GroupCache} when fresh */
+    public Uni<Optional<GroupRepresentation>> findGroupByPath(String path) {
+        Optional<GroupRepresentation> cached = groups.byPath(path);
+        if (cached.isPresent()) return Uni.createFrom().item(cached);
+
+        String encoded = Arrays.stream(path.substring(1).split("/"))
+                .map(segment -> URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20"))
+                .collect(Collectors.joining("/"));
+        return authed(b -> api.getGroupByPath(b, encoded), "Find group failed")
+                .map(g -> {
+                    if (g.path == null) g.path = path;
+                    return Optional.of(g);
+                })
+                .onFailure(e -> e instanceof KcCallException kce && kce.status() == 404)
+                .recoverWithItem(Optional.empty())
+                .invoke(found -> found.ifPresent(groups::put));
+    }
+
+    public Uni<Boolean> userInGroup(String userId, String groupId) {
+        return userGroupIds(userId).map(ids -> ids.contains(groupId));
+    }
+
+    /** Ids of the groups the user belongs to; served from {@link GroupCache} when fresh */
+    private Uni<Set<String>> userGroupIds(String userId) {
+        Optional<Set<String>> cached = groups.memberships(userId);
+        if (cached.isPresent()) return Uni.createFrom().item(cached.get());
+
+        return authed(b -> api.getUserGroups(b, userId), "List user groups failed")
+                .invoke(userGroups -> groups.putMemberships(userId, userGroups))
+                .map(userGroups -> userGroups.stream().map(g -> g.id).collect(Collectors.toSet()));
+    }
+
+    public Uni<Void> removeUserFromGroup(String userId, String groupId) {
+        return authed(b -> api.leaveGroup(b, userId, groupId), "Remove from group failed")
+                .invoke(() -> groups.left(userId, groupId))
+                .onFailure(e -> e instanceof KcCallException kce && kce.status() == 404)
+                .invoke(() -> {
+                    groups.forgetGroup(groupId);
+                    groups.invalidateMemberships(userId);
+                });
+    }
+
+    /* =================== workflows =================== */
+
+    /**
+     * Promotes a user to admin: grants {@code admin}, revokes {@code Customer} and leaves the {@code customers}
+     * group, each only when needed. The current state (realm roles, group memberships, the customers group and
+     * the admin role) is read once and concurrently, mostly from the caches. The grant goes first; the revoke
+     * and group removal are independent and run in parallel once it succeeded, so a failed promotion never
+     * strips the customer access. A failed grant fails the whole call (nothing changed); a failed revoke or
+     * group removal is reported in {@link Promotion#failed()} next to the steps that did succeed.
+     * Empty when the user already is an admin.
+     */
+    public Uni<Optional<Promotion>> promoteToAdmin(String userId) {
+        return Uni.combine().all().unis(
+                        getUserRealmRoles(userId),
+                        userGroupIds(userId),
+                        findGroupByName("customers"),
+                        roleCache.getAsync("admin"))
+                .asTuple()
+                .chain(t -> {
+                    List<String> roles = t.getItem1();
+                    if (roles.stream().anyMatch("admin"::equalsIgnoreCase)) return Uni.createFrom().item(Optional.empty());
+
+                    Optional<String> customerRole = roles.stream().filter("Customer"::equalsIgnoreCase).findFirst();
+                    Optional<GroupRepresentation> customersGroup = t.getItem3().filter(g -> t.getItem2().contains(g.id));
+
+                    Uni<Optional<Promotion.Failure>> revoke = customerRole
+                            .map(name -> step(roleCache.getAsync(name).chain(rep -> changeRealmRoles(userId, List.of(rep), false)),
+                                    "removeRealmRole", name))
+                            .orElse(Uni.createFrom().item(Optional.empty()));
+                    Uni<Optional<Promotion.Failure>> leave = customersGroup
+                            .map(g -> step(removeUserFromGroup(userId, g.id), "leaveGroup", g.name))
+                            .orElse(Uni.createFrom().item(Optional.empty()));
+
+                    return changeRealmRoles(userId, List.of(t.getItem4()), true)
+                            .chain(() -> Uni.combine().all().unis(revoke, leave).asTuple())
+                            .map(done -> Optional.of(new Promotion(
+                                    List.of(t.getItem4().name),
+                                    done.getItem1().isEmpty() ? customerRole.map(List::of).orElse(List.of()) : List.of(),
+                                    done.getItem2().isEmpty() ? customersGroup.map(g -> List.of(g.name)).orElse(List.of()) : List.of(),
+                                    Stream.of(done.getItem1(), done.getItem2()).flatMap(Optional::stream).toList())));
+                });
+    }
+
+    /** A follow-up step of {@link #promoteToAdmin}: empty when it succeeded, its failure otherwise (never fails) */
+    private static Uni<Optional<Promotion.Failure>> step(Uni<Void> call, String step, String target) {
+        return call.replaceWith(Optional.<Promotion.Failure>empty())
+                .onFailure().recoverWithItem(e -> Optional.of(Promotion.Failure.of(step, target, e)));
+    }
+}
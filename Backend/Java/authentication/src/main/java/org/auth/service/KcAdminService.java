@@ -1,277 +1,496 @@
 package org.auth.service;
 
+import org.auth.client.CredentialRepresentation;
+import org.auth.client.GroupRepresentation;
+import org.auth.client.KeycloakAdminApi;
+import org.auth.client.RoleRepresentation;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
 
+import io.quarkus.arc.Arc;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.vertx.core.buffer.Buffer;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.json.Json;
-import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
-import jakarta.json.JsonReader;
-import jakarta.ws.rs.client.Client;
-import jakarta.ws.rs.client.ClientBuilder;
-import jakarta.ws.rs.client.Entity;
-import jakarta.ws.rs.client.Invocation;
-import jakarta.ws.rs.client.WebTarget;
-import jakarta.ws.rs.core.Form;
-import jakarta.ws.rs.core.MediaType;
-import jakarta.ws.rs.core.Response;
-
-import java.io.StringReader;
-import java.net.URLEncoder;
+import jakarta.json.JsonValue;
+import jakarta.ws.rs.WebApplicationException;
+
+import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class KcAdminService {
 
-    @ConfigProperty(name = "keycloak.admin.url")
-    String keycloakUrl;
+    /** Progress granularity of {@link #bulkSetEnabled}: results per flush, or the longest wait between flushes */
+    static final int PROGRESS_CHUNK = 256;
+    static final Duration PROGRESS_INTERVAL = Duration.ofMillis(250);
+
+    @Inject
+    @RestClient
+    KeycloakAdminApi api;
+
+    @Inject
+    KcTokenManager tokens;
+
+    @Inject
+    KcAdminLimiter limiter;
+
+    @Inject
+    RealmRoleCache roleCache;
+
+    @Inject
+    UserRoleCache userRoles;
+
+    @Inject
+    RoleMappingEndpoint endpoint;
+
+    @Inject
+    GroupCache groups;
+
+    @Inject
+    KcAdminReactiveService async;
+
+    @Inject
+    RoleChangeCoalescer roleChanges;
+
+    @Inject
+    UserMutations mutations;
+
+    /** Reads memoized for the current request and its Keycloak call budget */
+    @Inject
+    KcRequestCalls calls;
 
-    @ConfigProperty(name = "keycloak.admin.realm")
-    String realm;
+    /** Whether {@link #calls} can be used: false outside HTTP requests (jobs, startup) */
+    BooleanSupplier requestActive = () -> Arc.container().requestContext().isActive();
 
-    @ConfigProperty(name = "keycloak.admin.client-id")
-    String clientId;
+    @ConfigProperty(name = "keycloak.admin.batch.max-size", defaultValue = "5000")
+    int maxBatchSize;
 
-    @ConfigProperty(name = "keycloak.admin.client-secret")
-    String clientSecret;
+    @ConfigProperty(name = "keycloak.admin.export.page-size", defaultValue = "500")
+    int exportPageSize;
+
+    @ConfigProperty(name = "keycloak.admin.batch.concurrency", defaultValue = "8")
+    int importConcurrency;
 
     /* =================== helpers =================== */
 
-    private String tokenEndpoint() {
-        return keycloakUrl + "/realms/" + realm + "/protocol/openid-connect/token";
+    private String bearer() {
+        return "Bearer " + tokens.getToken();
+    }
+
+    /** Waits for the call (sent within {@link KcAdminLimiter}) and turns a non-2xx answer into "&lt;failure&gt;: &lt;status&gt; ..." */
+    private <T> T await(Uni<T> call, String failure) {
+        try {
+            return join(limiter.limit(call));
+        } catch (WebApplicationException e) {
+            throw KcCallException.of(failure, e);
+        }
     }
 
-    private String adminBase() {
-        return keycloakUrl + "/admin/realms/" + realm;
+    /** Waits for {@code work}; every Keycloak call it sends (through {@link KcAdminLimiter}) counts in the request budget */
+    private <T> T join(Uni<T> work) {
+        KcRequestCalls c = requestCalls();
+        return (c == null ? work.await() : work.awaitUsing(c.context())).indefinitely();
     }
 
-    private String getAdminToken() {
-        WebTarget target = ClientBuilder.newClient().target(tokenEndpoint());
-        Form form = new Form()
-                .param("grant_type", "client_credentials")
-                .param("client_id", clientId)
-                .param("client_secret", clientSecret);
+    private KcRequestCalls requestCalls() {
+        return calls != null && requestActive.getAsBoolean() ? calls : null;
+    }
 
-        try (Response res = target.request().post(Entity.form(form))) {
-            if (res.getStatus() != 200) {
-                throw new RuntimeException("Cannot obtain admin token. Status=" + res.getStatus());
-            }
-            JsonObject json = res.readEntity(JsonObject.class);
-            return json.getString("access_token");
+    /** A read done once per request: later identical reads get the same answer until a write to {@code scope} */
+    private <T> T memo(String scope, String key, Supplier<T> load) {
+        KcRequestCalls c = requestCalls();
+        return c == null ? load.get() : c.read(scope, key, load);
+    }
+
+    /** A call that changes {@code scope} (a user id): also drops what this request read about it */
+    private <T> T write(String scope, Supplier<T> call) {
+        try {
+            return call.get();
+        } finally {
+            KcRequestCalls c = requestCalls();
+            if (c != null) c.forget(scope);
         }
     }
 
-    private Invocation.Builder authed(String path) {
-        String token = getAdminToken();
-        Client client = ClientBuilder.newClient();
-        return client.target(path)
-                .request(MediaType.APPLICATION_JSON_TYPE)
-                .header("Authorization", "Bearer " + token);
+    /** Same for writes whose targets are only known to Keycloak (bulk by search, ...) */
+    private <T> T writeAll(Supplier<T> call) {
+        try {
+            return call.get();
+        } finally {
+            KcRequestCalls c = requestCalls();
+            if (c != null) c.forgetAll();
+        }
     }
 
     /* =================== users =================== */
 
-    /** Create user and bring back the userId */
-    public String createUser(String username, String email, boolean emailVerified, boolean enabled) {
-        JsonObject user = Json.createObjectBuilder()
-                .add("username", username)
-                .add("email", email)
-                .add("emailVerified", emailVerified)
-                .add("enabled", enabled)
-                .build();
-
-        String path = adminBase() + "/users";
-        try (Response res = authed(path).post(Entity.json(user))) {
-            if (res.getStatus() != 201) {
-                String body = res.hasEntity() ? res.readEntity(String.class) : "";
-                throw new RuntimeException("Create user failed: " + res.getStatus() + " " + body);
+    /** Create user (password, groups and realm roles included) and bring back the userId */
+    public String createUser(NewUser user) {
+        return join(async.createUser(user));
+    }
+
+    /** Bulk create with bounded concurrency; see {@link KcAdminReactiveService#createUsers} */
+    public List<BatchItemResult> createUsers(List<NewUser> users) {
+        return join(async.createUsers(users));
+    }
+
+    /**
+     * Imports users row by row from {@code rows} and writes one NDJSON result per row to {@code out}
+     * (in completion order, each carrying its row index). At most {@code importConcurrency} rows are in
+     * Keycloak at a time; while all slots are busy no further row is read, so a slow Keycloak slows
+     * down the upload instead of filling memory. {@code rowCheck} may veto a row with an error message.
+     */
+    public void importUsers(UserImportReader rows, Function<NewUser, String> rowCheck, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        BlockingQueue<BatchItemResult> done = new LinkedBlockingQueue<>();
+        int inFlight = 0;
+        try (rows) {
+            UserImportReader.Row row;
+            while ((row = rows.next()) != null) {
+                // wait for a free slot, writing finished rows meanwhile
+                boolean wrote = false;
+                for (; inFlight >= importConcurrency; inFlight--, wrote = true) writeResult(writer, take(done));
+                for (BatchItemResult r; (r = done.poll()) != null; inFlight--, wrote = true) writeResult(writer, r);
+                if (wrote) writer.flush();
+
+                String rejected = row.error() != null ? row.error() : rowCheck.apply(row.user());
+                if (rejected != null) {
+                    writeResult(writer, new BatchItemResult(row.index(), null, 400, rejected));
+                    continue;
+                }
+                async.provision(row.index(), row.user()).subscribe().with(done::add);
+                inFlight++;
             }
-            String location = res.getHeaderString("Location"); // .../users/{id}
-            return location.substring(location.lastIndexOf('/') + 1);
+            for (; inFlight > 0; inFlight--) writeResult(writer, take(done));
+        } finally {
+            writer.flush();
         }
     }
 
-    /** Set/Reset password */
-    public void setPassword(String userId, String password, boolean temporary) {
-        JsonObject cred = Json.createObjectBuilder()
-                .add("type", "password")
-                .add("value", password)
-                .add("temporary", temporary)
-                .build();
-
-        String path = adminBase() + "/users/" + userId + "/reset-password";
-        try (Response res = authed(path).put(Entity.json(cred))) {
-            if (res.getStatus() != 204) {
-                throw new RuntimeException("Set password failed: " + res.getStatus());
-            }
+    private static BatchItemResult take(BlockingQueue<BatchItemResult> done) throws InterruptedIOException {
+        try {
+            return done.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
         }
     }
 
-    /** Search/simple list of users */
-    public String listUsersRaw(String q, Integer first, Integer max) {
-        StringBuilder url = new StringBuilder(adminBase() + "/users");
-        List<String> params = new ArrayList<>();
-        if (q != null && !q.isBlank()) params.add("search=" + URLEncoder.encode(q, StandardCharsets.UTF_8));
-        if (first != null) params.add("first=" + first);
-        if (max != null) params.add("max=" + max);
-        if (!params.isEmpty()) url.append("?").append(String.join("&", params));
+    private static void writeResult(Writer writer, BatchItemResult r) throws IOException {
+        var line = Json.createObjectBuilder().add("index", r.index());
+        if (r.id() != null) line.add("id", r.id());
+        if (r.status() != null) line.add("status", r.status());
+        if (r.error() != null) line.add("error", r.error());
+        writer.write(line.build().toString());
+        writer.write('\n');
+    }
 
-        try (Response res = authed(url.toString()).get()) {
-            if (res.getStatus() != 200) throw new RuntimeException("List users failed: " + res.getStatus());
-            return res.readEntity(String.class);
-        }
+    /** Largest number of items accepted by one bulk request */
+    public int maxBatchSize() {
+        return maxBatchSize;
     }
 
-    /** Get single user with realm roles injected */
-    public JsonObject getUser(String userId) {
-        String path = adminBase() + "/users/" + userId;
+    /** Set/Reset password */
+    public void setPassword(String userId, String password, boolean temporary) {
+        write(userId, () -> await(api.resetPassword(bearer(), userId, CredentialRepresentation.password(password, temporary)),
+                "Set password failed"));
+    }
 
-        JsonObject base;
-        try (Response res = authed(path).get()) {
-            if (res.getStatus() != 200) throw new RuntimeException("Get user failed: " + res.getStatus());
-            base = res.readEntity(JsonObject.class);
+    /** Search/simple list of users: Keycloak's JSON bytes, passed through as-is */
+    public Buffer listUsersRaw(String q, Integer first, Integer max) {
+        String search = (q != null && !q.isBlank()) ? q : null;
+        return await(api.listUsers(bearer(), search, first, max), "List users failed");
+    }
+
+    /** One page of users with {@code realmRoles} joined in; see {@link KcAdminReactiveService#listUsersWithRealmRoles} */
+    public JsonArray listUsersWithRealmRoles(String q, Integer first, Integer max) {
+        String search = (q != null && !q.isBlank()) ? q : null;
+        return join(async.listUsersWithRealmRoles(search, first, max));
+    }
+
+    /**
+     * Writes every user matching {@code q} to {@code out} as NDJSON (one JSON object per line).
+     * Pages through Keycloak with {@code exportPageSize}; the next page is already being fetched while
+     * the current one is written, and at most two pages are held in memory. A slow reader simply
+     * blocks the writer (and with it the next fetch).
+     */
+    public void exportUsers(String q, OutputStream out) throws IOException {
+        String search = (q != null && !q.isBlank()) ? q : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        int first = 0;
+        CompletableFuture<JsonArray> next = fetchUserPage(search, first);
+        try {
+            while (next != null) {
+                JsonArray page = joinPage(next);
+                first += page.size();
+                next = page.size() < exportPageSize ? null : fetchUserPage(search, first);
+                for (JsonValue user : page) {
+                    writer.write(user.toString());
+                    writer.write('\n');
+                }
+                writer.flush();
+            }
+        } finally {
+            // client went away or Keycloak failed: do not leave the prefetch running
+            if (next != null) next.cancel(true);
         }
+    }
 
-        List<String> roles = getUserRealmRoles(userId);
+    private CompletableFuture<JsonArray> fetchUserPage(String search, int first) {
+        CompletableFuture<JsonArray> page = new CompletableFuture<>();
+        Cancellable request = Uni.createFrom().completionStage(tokens::token)
+                .chain(token -> limiter.limit(api.listUsers("Bearer " + token, search, first, exportPageSize)))
+                .map(KcAdminService::readArray)
+                .subscribe().with(page::complete, page::completeExceptionally);
+        // cancelling the page aborts the HTTP request
+        page.whenComplete((p, e) -> { if (page.isCancelled()) request.cancel(); });
+        return page;
+    }
 
-        var ab = Json.createArrayBuilder();
-        for (String r : roles) ab.add(r);
+    static JsonArray readArray(Buffer raw) {
+        return Json.createReader(new ByteArrayInputStream(raw.getBytes())).readArray();
+    }
 
-        return Json.createObjectBuilder(base)
-                .add("realmRoles", ab.build())
-                .build();
+    private static JsonArray joinPage(CompletableFuture<JsonArray> page) {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            throw KcCallException.of("List users failed", e.getCause());
+        }
+    }
+
+    /** Get single user with realm roles injected; user and roles are fetched concurrently */
+    public JsonObject getUser(String userId) {
+        return memo(userId, "user", () -> join(async.getUser(userId)));
     }
 
     /** Enable/Disable user (partial update is accepted by Keycloak) */
     public void setEnabled(String userId, boolean enabled) {
-        JsonObject patch = Json.createObjectBuilder()
-                .add("enabled", enabled)
-                .build();
-        String path = adminBase() + "/users/" + userId;
-        try (Response res = authed(path).put(Entity.json(patch))) {
-            if (res.getStatus() != 204) {
-                String body = res.hasEntity() ? res.readEntity(String.class) : "";
-                throw new RuntimeException("Set enabled failed: " + res.getStatus() + " " + body);
+        write(userId, () -> join(async.setEnabled(userId, enabled)));
+    }
+
+    /** Users by id (duplicates and unknown ids dropped); see {@link KcAdminReactiveService#lookupUsers} */
+    public Map<String, JsonObject> lookupUsers(List<String> userIds) {
+        return join(async.lookupUsers(userIds));
+    }
+
+    /**
+     * Enables or disables every listed user (see {@link KcAdminReactiveService#bulkSetEnabled}) and
+     * writes one NDJSON result per user to {@code out} as they finish. Lines are flushed in chunks
+     * (every {@link #PROGRESS_CHUNK} results or {@link #PROGRESS_INTERVAL}), so the caller sees progress
+     * while the batch runs. Closing the stream early cancels the remaining work.
+     */
+    public void bulkSetEnabled(List<String> userIds, boolean enabled, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (Stream<List<BatchItemResult>> chunks = async.bulkSetEnabled(Multi.createFrom().iterable(userIds), enabled)
+                .group().intoLists().of(PROGRESS_CHUNK, PROGRESS_INTERVAL)
+                .subscribe().asStream()) {
+            for (Iterator<List<BatchItemResult>> it = chunks.iterator(); it.hasNext(); ) {
+                List<BatchItemResult> chunk = it.next();
+                if (chunk.isEmpty()) continue;
+                for (BatchItemResult r : chunk) writeResult(writer, r);
+                writer.flush();
             }
+        } finally {
+            writer.flush();
         }
     }
 
     /* =================== realm roles =================== */
 
-    private JsonObject getRealmRoleRep(String roleName) {
-        String path = adminBase() + "/roles/" + roleName;
-        try (Response res = authed(path).get()) {
-            if (res.getStatus() != 200) throw new RuntimeException("Role not found: " + roleName);
-            return res.readEntity(JsonObject.class);
-        }
+    /** Drops and reloads the cached realm role representations; returns how many roles were loaded */
+    public int reloadRealmRoles() {
+        return join(roleCache.reload());
     }
 
-    /** Return realm roles (names) assigned to a user */
+    /** Return realm roles (names) assigned to a user; served from {@link UserRoleCache} when fresh */
     public List<String> getUserRealmRoles(String userId) {
-        String base = adminBase() + "/users/" + userId + "/role-mappings/realm";
-
-        // 1) Intentar el endpoint expandido de compuestos (Keycloak 26+: singular)
-        String pathComposite = base + "/composite";
-        try (Response res = authed(pathComposite).get()) {
-            if (res.getStatus() == 200) {
-                String body = res.readEntity(String.class);
-                try (JsonReader rdr = Json.createReader(new StringReader(body))) {
-                    return rdr.readArray().stream()
-                            .map(v -> ((JsonObject) v).getString("name"))
-                            .collect(Collectors.toList());
-                }
-            } else if (res.getStatus() != 404) {
-                throw new RuntimeException("Get user realm roles (composite) failed: " + res.getStatus());
-            }
-            // si 404, seguimos al fallback
-        }
+        return memo(userId, "realm-roles", () -> {
+            Optional<List<String>> cached = userRoles.get(userId);
+            if (cached.isPresent()) return cached.get();
+
+            long generation = userRoles.generation(userId);
+            List<String> names = fetchUserRealmRoles(userId);
+            userRoles.put(userId, generation, names);
+            return names;
+        });
+    }
 
-        // 2) Fallback: roles asignados directamente al realm (sin expandir)
-        try (Response res = authed(base).get()) {
-            if (res.getStatus() != 200) {
-                throw new RuntimeException("Get user realm roles failed: " + res.getStatus());
+    private List<String> fetchUserRealmRoles(String userId) {
+        String bearer = bearer();
+        List<RoleRepresentation> roles;
+        if (endpoint.known() == RoleMappingEndpoint.Variant.PLAIN) {
+            // el servidor no tiene el endpoint de compuestos: directo al mapping del realm
+            try {
+                roles = join(limiter.limit(api.getRealmRoleMappings(bearer, userId)));
+            } catch (WebApplicationException e) {
+                endpoint.unexpected(e.getResponse().getStatus());
+                throw KcCallException.of("Get user realm roles failed", e);
             }
-            String body = res.readEntity(String.class);
-            try (JsonReader rdr = Json.createReader(new StringReader(body))) {
-                return rdr.readArray().stream()
-                        .map(v -> ((JsonObject) v).getString("name"))
-                        .collect(Collectors.toList());
+        } else {
+            // 1) Intentar el endpoint expandido de compuestos (Keycloak 26+: singular)
+            try {
+                roles = join(limiter.limit(api.getEffectiveRealmRoles(bearer, userId)));
+                endpoint.record(RoleMappingEndpoint.Variant.COMPOSITE);
+            } catch (WebApplicationException e) {
+                if (e.getResponse().getStatus() != 404) {
+                    endpoint.unexpected(e.getResponse().getStatus());
+                    throw KcCallException.of("Get user realm roles (composite) failed", e);
+                }
+                // 2) Fallback: roles asignados directamente al realm (sin expandir)
+                roles = await(api.getRealmRoleMappings(bearer, userId), "Get user realm roles failed");
+                endpoint.record(RoleMappingEndpoint.Variant.PLAIN);
             }
         }
+        return roles.stream().map(r -> r.name).collect(Collectors.toList());
     }
 
     public boolean userHasRealmRole(String userId, String roleName) {
         return getUserRealmRoles(userId).stream().anyMatch(r -> r.equalsIgnoreCase(roleName));
     }
 
+    /**
+     * Adds realm roles to a user who is not an administrator (403 otherwise), in the user's turn; see
+     * {@link RoleChangeCoalescer}. Returns once the roles were written, coalesced with other changes or not.
+     */
     public void addRealmRoles(String userId, List<String> roles) {
-        JsonArrayBuilder arr = Json.createArrayBuilder();
-        for (String r : roles) arr.add(getRealmRoleRep(r));
-        String path = adminBase() + "/users/" + userId + "/role-mappings/realm";
-        try (Response res = authed(path).post(Entity.json(arr.build()))) {
-            if (res.getStatus() != 204) throw new RuntimeException("Add realm roles failed: " + res.getStatus());
-        }
+        write(userId, () -> join(roleChanges.add(userId, roles)));
     }
 
     public void removeRealmRoles(String userId, List<String> roles) {
-        JsonArrayBuilder arr = Json.createArrayBuilder();
-        for (String r : roles) arr.add(getRealmRoleRep(r));
-        String path = adminBase() + "/users/" + userId + "/role-mappings/realm";
-        try (Response res = authed(path).method("DELETE", Entity.json(arr.build()))) {
-            if (res.getStatus() != 204) throw new RuntimeException("Remove realm roles failed: " + res.getStatus());
+        write(userId, () -> join(roleChanges.remove(userId, roles)));
+    }
+
+    /** Adds realm roles to each listed user; see {@link KcAdminReactiveService#bulkRealmRoles} */
+    public List<BatchItemResult> bulkAddRealmRoles(List<String> userIds, List<String> roles) {
+        return writeAll(() -> join(async.bulkRealmRoles(Multi.createFrom().iterable(userIds), roles, true)));
+    }
+
+    public List<BatchItemResult> bulkRemoveRealmRoles(List<String> userIds, List<String> roles) {
+        return writeAll(() -> join(async.bulkRealmRoles(Multi.createFrom().iterable(userIds), roles, false)));
+    }
+
+    /** Same as above for every user matching {@code search}; users are paged in while the writes run */
+    public List<BatchItemResult> bulkAddRealmRolesMatching(String search, List<String> roles) {
+        return writeAll(() -> join(async.bulkRealmRoles(async.matchingUserIds(search), roles, true)));
+    }
+
+    public List<BatchItemResult> bulkRemoveRealmRolesMatching(String search, List<String> roles) {
+        return writeAll(() -> join(async.bulkRealmRoles(async.matchingUserIds(search), roles, false)));
+    }
+
+    /* =================== job variants =================== */
+    // Used by AdminJobs: each result is handed to progress as soon as it is known (completion order).
+    // An exception thrown by progress, or an interrupt, stops the run and cancels the remaining work.
+
+    public void createUsers(List<NewUser> users, Consumer<BatchItemResult> progress) {
+        drain(async.createUsersAsCompleted(users), progress);
+    }
+
+    public void setEnabled(List<String> userIds, boolean enabled, Consumer<BatchItemResult> progress) {
+        drain(async.bulkSetEnabled(Multi.createFrom().iterable(userIds), enabled), progress);
+    }
+
+    /** Targets {@code userIds}, or every user matching {@code search} when no ids are given */
+    public void changeRealmRoles(List<String> userIds, String search, List<String> roles, boolean add,
+                                 Consumer<BatchItemResult> progress) {
+        Multi<String> targets = userIds != null ? Multi.createFrom().iterable(userIds) : async.matchingUserIds(search);
+        drain(async.bulkRealmRolesAsCompleted(targets, roles, add), progress);
+    }
+
+    private static void drain(Multi<BatchItemResult> results, Consumer<BatchItemResult> progress) {
+        // closing the stream cancels the subscription
+        try (Stream<BatchItemResult> stream = results.subscribe().asStream()) {
+            stream.forEach(progress);
         }
     }
 
+    /** Grants admin and drops the customer role and group as needed; see {@link KcAdminReactiveService#promoteToAdmin} */
+    public Optional<Promotion> promoteToAdmin(String userId) {
+        return write(userId, () -> join(async.promoteToAdmin(userId)));
+    }
+
+    /** Hit/miss counters of the per-user role cache */
+    public UserRoleCache.Stats userRoleCacheStats() {
+        return userRoles.stats();
+    }
+
+    /** Contention counters of the per-user mutation ordering */
+    public UserMutations.Stats userMutationStats() {
+        return mutations.stats();
+    }
+
+    /** Current limit, in-flight calls and queue depth of the Keycloak call limiter */
+    public KcAdminLimiter.Stats limiterStats() {
+        return limiter.stats();
+    }
+
     /* =================== sessions =================== */
 
     public void logoutUser(String userId) {
-        String path = adminBase() + "/users/" + userId + "/logout";
-        try (Response res = authed(path).post(Entity.json("{}"))) {
-            if (res.getStatus() != 204) throw new RuntimeException("Logout failed: " + res.getStatus());
-        }
+        await(api.logout(bearer(), userId), "Logout failed");
     }
 
     /* =================== groups =================== */
 
-    public Optional<JsonObject> findGroupByName(String name) {
-        String path = adminBase() + "/groups?search=" + URLEncoder.encode(name, StandardCharsets.UTF_8);
-        try (Response res = authed(path).get()) {
-            if (res.getStatus() != 200) throw new RuntimeException("Find group failed: " + res.getStatus());
-            String body = res.readEntity(String.class);
-            try (JsonReader rdr = Json.createReader(new StringReader(body))) {
-                return rdr.readArray().stream()
-                        .map(v -> (JsonObject) v)
-                        // algunos resultados son “contiene”; matcheá por nombre exacto
-                        .filter(o -> name.equalsIgnoreCase(o.getString("name", "")))
-                        .findFirst();
-            }
-        }
+    public Optional<GroupRepresentation> findGroupByName(String name) {
+        return memo(KcRequestCalls.GLOBAL, "group:" + name.toLowerCase(Locale.ROOT), () -> {
+            Optional<GroupRepresentation> cached = groups.byName(name);
+            if (cached.isPresent()) return cached;
+
+            Optional<GroupRepresentation> found = await(api.searchGroups(bearer(), name), "Find group failed").stream()
+                    // algunos resultados son “contiene”; matcheá por nombre exacto
+                    .filter(g -> name.equalsIgnoreCase(g.name))
+                    .findFirst();
+            found.ifPresent(groups::put);
+            return found;
+        });
     }
 
     public boolean userInGroup(String userId, String groupId) {
-        String path = adminBase() + "/users/" + userId + "/groups";
-        try (Response res = authed(path).get()) {
-            if (res.getStatus() != 200) throw new RuntimeException("List user groups failed: " + res.getStatus());
-            String body = res.readEntity(String.class);
-            try (JsonReader rdr = Json.createReader(new StringReader(body))) {
-                return rdr.readArray().stream()
-                        .map(v -> (JsonObject) v)
-                        .anyMatch(g -> groupId.equals(g.getString("id", "")));
-            }
-        }
+        return memo(userId, "in-group:" + groupId, () -> {
+            Optional<Set<String>> cached = groups.memberships(userId);
+            if (cached.isPresent()) return cached.get().contains(groupId);
+
+            List<GroupRepresentation> userGroups = await(api.getUserGroups(bearer(), userId), "List user groups failed");
+            groups.putMemberships(userId, userGroups);
+            return userGroups.stream().anyMatch(g -> groupId.equals(g.id));
+        });
     }
 
     /** Quita usuario de un grupo (id del grupo) */
     public void removeUserFromGroup(String userId, String groupId) {
-        String path = adminBase() + "/users/" + userId + "/groups/" + groupId;
-        try (Response res = authed(path).delete()) {
-            if (res.getStatus() != 204) throw new RuntimeException("Remove from group failed: " + res.getStatus());
+        try {
+            write(userId, () -> await(api.leaveGroup(bearer(), userId, groupId), "Remove from group failed"));
+            groups.left(userId, groupId);
+        } catch (KcCallException e) {
+            if (e.status() == 404) {
+                // el grupo (o el usuario) ya no existe: no confiar en lo cacheado
+                groups.forgetGroup(groupId);
+                groups.invalidateMemberships(userId);
+                KcRequestCalls c = requestCalls();
+                if (c != null) c.forget(KcRequestCalls.GLOBAL);
+            }
+            throw e;
         }
     }
 
-
 }
-
-
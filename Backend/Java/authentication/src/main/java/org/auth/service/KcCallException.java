@@ -0,0 +1,36 @@
+package org.auth.service;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+
+/** A Keycloak Admin API call answered with an unexpected status. */
+public class KcCallException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    public KcCallException(String message, int status) {
+        super(message);
+        this.status = status;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    /** Wraps the REST client failure keeping the "&lt;failure&gt;: &lt;status&gt; &lt;body&gt;" message format. */
+    public static RuntimeException of(String failure, Throwable error) {
+        if (!(error instanceof WebApplicationException wae)) {
+            return error instanceof RuntimeException re ? re : new RuntimeException(failure, error);
+        }
+        Response res = wae.getResponse();
+        String body = "";
+        try {
+            if (res.hasEntity()) body = res.readEntity(String.class);
+        } catch (RuntimeException ignored) {
+            // body already consumed or not readable
+        }
+        return new KcCallException((failure + ": " + res.getStatus() + " " + body).trim(), res.getStatus());
+    }
+}
@@ -0,0 +1,11 @@
+package org.auth.service;
+
+/** A Keycloak call refused before being sent: {@link KcAdminLimiter} already has a full queue. */
+public class KcOverloadException extends KcCallException {
+
+    private static final long serialVersionUID = 1L;
+
+    public KcOverloadException(int inFlight, int queued) {
+        super("Keycloak is busy (" + inFlight + " calls in flight, " + queued + " waiting), retry later", 503);
+    }
+}
@@ -0,0 +1,82 @@
+package org.auth.service;
+
+import io.smallrye.mutiny.Context;
+import jakarta.enterprise.context.RequestScoped;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Keycloak calls of the current HTTP request: memoized reads and the call budget (how many HTTP requests
+ * went to Keycloak on its behalf and how long they took).
+ *
+ * Reads are grouped by scope (usually the user id) so a write only drops what it can have changed; a request
+ * runs on one thread at a time, so the memo needs no locking. The budget is fed by {@link KcAdminLimiter} for
+ * every call it starts, found through the Mutiny {@link #context()} the request subscribes with; those calls
+ * end on I/O threads, hence the atomic counters.
+ */
+@RequestScoped
+public class KcRequestCalls {
+
+    /** Scope of reads that do not belong to a single user (groups by name, ...) */
+    public static final String GLOBAL = "";
+
+    /** Key of this request's budget in the Mutiny context */
+    static final String CONTEXT_KEY = KcRequestCalls.class.getName();
+
+    private final Map<String, Map<String, Object>> reads = new HashMap<>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final LongAdder upstreamNanos = new LongAdder();
+    private int memoHits;
+
+    /** The value already read for {@code scope}/{@code key} in this request, else {@code load} (kept for later, errors are not) */
+    @SuppressWarnings("unchecked")
+    public <T> T read(String scope, String key, Supplier<T> load) {
+        Map<String, Object> scoped = reads.get(scope);
+        if (scoped != null && scoped.containsKey(key)) {
+            memoHits++;
+            return (T) scoped.get(key);
+        }
+        T value = load.get();
+        reads.computeIfAbsent(scope, s -> new HashMap<>()).put(key, value);
+        return value;
+    }
+
+    /** A Mutiny context carrying this budget (the instance itself, not the request-scoped proxy) */
+    public Context context() {
+        return Context.of(CONTEXT_KEY, this);
+    }
+
+    /** One HTTP request sent to Keycloak, failed ones included */
+    void sent(long nanos) {
+        calls.incrementAndGet();
+        upstreamNanos.add(nanos);
+    }
+
+    /** Drops the reads of {@code scope}; called after a write to it */
+    public void forget(String scope) {
+        reads.remove(scope);
+    }
+
+    /** Drops every read; for writes whose targets are not known up front */
+    public void forgetAll() {
+        reads.clear();
+    }
+
+    public int calls() {
+        return calls.get();
+    }
+
+    public int memoHits() {
+        return memoHits;
+    }
+
+    /** Summed duration of the calls; concurrent calls overlap, so this can exceed the request's own time */
+    public Duration upstreamTime() {
+        return Duration.ofNanos(upstreamNanos.sum());
+    }
+}
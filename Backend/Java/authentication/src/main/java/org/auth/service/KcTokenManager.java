@@ -0,0 +1,123 @@
+package org.auth.service;
+
+import org.auth.client.KeycloakTokenApi;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Caches the client_credentials access token used against the Keycloak Admin API.
+ *
+ * <ul>
+ *   <li>The token is reused until {@code min-validity} before its {@code expires_in}.</li>
+ *   <li>Inside the {@code refresh-ahead} window a refresh is started in the background
+ *       while callers keep receiving the still valid token.</li>
+ *   <li>Only one token request is in flight at a time; concurrent callers share it.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class KcTokenManager {
+
+    /** Used when Keycloak does not send {@code expires_in}. */
+    private static final long DEFAULT_EXPIRES_IN_SECONDS = 60;
+
+    @ConfigProperty(name = "keycloak.admin.client-id")
+    String clientId;
+
+    @ConfigProperty(name = "keycloak.admin.client-secret")
+    String clientSecret;
+
+    @ConfigProperty(name = "keycloak.admin.token.min-validity", defaultValue = "10s")
+    Duration minValidity;
+
+    @ConfigProperty(name = "keycloak.admin.token.refresh-ahead", defaultValue = "30s")
+    Duration refreshAhead;
+
+    @Inject
+    @RestClient
+    KeycloakTokenApi tokenApi;
+
+    Clock clock = Clock.systemUTC();
+
+    private volatile CachedToken current;
+    private final AtomicReference<CompletableFuture<CachedToken>> inflight = new AtomicReference<>();
+
+    /** Blocking access for worker-thread callers. */
+    public String getToken() {
+        try {
+            return token().toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    /** Non-blocking access: completes immediately when a usable token is cached. */
+    public CompletionStage<String> token() {
+        CachedToken t = current;
+        Instant now = clock.instant();
+        if (t != null && now.isBefore(t.expiresAt().minus(minValidity))) {
+            if (!now.isBefore(t.expiresAt().minus(refreshAhead))) {
+                refresh(); // background, callers keep the current token
+            }
+            return CompletableFuture.completedFuture(t.accessToken());
+        }
+        return refresh().thenApply(CachedToken::accessToken);
+    }
+
+    /** Drops the cached token, e.g. after Keycloak answered 401. */
+    public void invalidate() {
+        current = null;
+    }
+
+    /* =================== helpers =================== */
+
+    private CompletableFuture<CachedToken> refresh() {
+        while (true) {
+            CompletableFuture<CachedToken> running = inflight.get();
+            if (running != null) return running;
+
+            CompletableFuture<CachedToken> mine = new CompletableFuture<>();
+            if (inflight.compareAndSet(null, mine)) {
+                CompletionStage<CachedToken> request;
+                try {
+                    request = requestToken();
+                } catch (RuntimeException e) {
+                    request = CompletableFuture.failedFuture(e);
+                }
+                request.whenComplete((tok, err) -> {
+                    if (err == null) current = tok;
+                    inflight.compareAndSet(mine, null);
+                    if (err == null) mine.complete(tok);
+                    else mine.completeExceptionally(err instanceof CompletionException && err.getCause() != null ? err.getCause() : err);
+                });
+                return mine;
+            }
+        }
+    }
+
+    /** Performs the client_credentials grant. Package-private so tests can stub Keycloak. */
+    CompletionStage<CachedToken> requestToken() {
+        return tokenApi.grant("client_credentials", clientId, clientSecret)
+                .onFailure(WebApplicationException.class).transform(e -> new KcCallException(
+                        "Cannot obtain admin token. Status=" + ((WebApplicationException) e).getResponse().getStatus(),
+                        ((WebApplicationException) e).getResponse().getStatus()))
+                .map(res -> new CachedToken(res.accessToken, clock.instant().plusSeconds(
+                        res.expiresIn != null ? res.expiresIn : DEFAULT_EXPIRES_IN_SECONDS)))
+                .subscribeAsCompletionStage();
+    }
+
+    record CachedToken(String accessToken, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,21 @@
+package org.auth.service;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A user to create: account fields, initial password, and optionally realm roles and groups
+ * (group names or paths such as "/customers").
+ */
+public record NewUser(String username, String email, String password, boolean emailVerified, boolean enabled,
+                      List<String> realmRoles, List<String> groups) {
+
+    public NewUser {
+        realmRoles = realmRoles == null ? List.of() : realmRoles.stream().filter(Objects::nonNull).toList();
+        groups = groups == null ? List.of() : groups.stream().filter(Objects::nonNull).toList();
+    }
+
+    public NewUser(String username, String email, String password, boolean emailVerified, boolean enabled) {
+        this(username, email, password, emailVerified, enabled, List.of(), List.of());
+    }
+}
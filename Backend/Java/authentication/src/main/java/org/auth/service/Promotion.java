@@ -0,0 +1,32 @@
+package org.auth.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * What a promotion to admin changed: realm roles granted and revoked, and groups (by name) the user left.
+ * Steps that were not needed are simply absent; steps that failed after the grant are listed in {@code failed}
+ * instead (the grant itself is never undone).
+ */
+public record Promotion(List<String> addedRealmRoles, List<String> removedRealmRoles, List<String> leftGroups,
+                        @JsonInclude(JsonInclude.Include.NON_EMPTY) List<Failure> failed) {
+
+    public Promotion(List<String> addedRealmRoles, List<String> removedRealmRoles, List<String> leftGroups) {
+        this(addedRealmRoles, removedRealmRoles, leftGroups, List.of());
+    }
+
+    /** Whether some step failed, leaving the promotion partially applied */
+    public boolean partial() {
+        return !failed.isEmpty();
+    }
+
+    /** A step that failed: {@code removeRealmRole} or {@code leaveGroup}, the role or group it targeted, and the Keycloak status when known */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Failure(String step, String target, Integer status, String error) {
+
+        static Failure of(String step, String target, Throwable e) {
+            return new Failure(step, target, e instanceof KcCallException kce ? kce.status() : null, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.auth.service;
+
+import org.auth.client.KeycloakAdminApi;
+import org.auth.client.RoleRepresentation;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory cache of realm role representations (needed as body of every role-mapping write).
+ * All realm roles are preloaded at startup; entries expire after {@code ttl} and are then
+ * fetched again one by one, one request per role however many callers miss it at once.
+ * {@link #invalidate(String)} / {@link #invalidateAll()} drop them explicitly.
+ */
+@ApplicationScoped
+public class RealmRoleCache {
+
+    private static final Logger LOG = Logger.getLogger(RealmRoleCache.class);
+
+    @ConfigProperty(name = "keycloak.admin.cache.roles.ttl", defaultValue = "10m")
+    Duration ttl;
+
+    @ConfigProperty(name = "keycloak.admin.cache.roles.preload", defaultValue = "true")
+    boolean preload;
+
+    @Inject
+    @RestClient
+    KeycloakAdminApi api;
+
+    @Inject
+    KcTokenManager tokens;
+
+    @Inject
+    KcAdminLimiter limiter;
+
+    Clock clock = Clock.systemUTC();
+
+    private final ConcurrentMap<String, Entry> roles = new ConcurrentHashMap<>();
+
+    /** Lookups in flight per role name, shared by every caller until they resolve (failures are not kept) */
+    private final ConcurrentMap<String, Uni<RoleRepresentation>> loading = new ConcurrentHashMap<>();
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!preload) return;
+        try {
+            reload().await().indefinitely();
+        } catch (RuntimeException e) {
+            // Keycloak may still be starting; roles are then loaded on first use
+            LOG.warnf("Realm role preload failed: %s", e.getMessage());
+        }
+    }
+
+    /** Replaces the cache content with every realm role (one Keycloak call). */
+    public Uni<Integer> reload() {
+        return Uni.createFrom().completionStage(tokens::token)
+                .chain(token -> limiter.limit(api.listRealmRoles("Bearer " + token)))
+                .onFailure(WebApplicationException.class).transform(e -> KcCallException.of("List realm roles failed", e))
+                .map(list -> {
+                    Instant now = clock.instant();
+                    roles.clear();
+                    for (RoleRepresentation r : list) roles.put(r.name, new Entry(r, now));
+                    return list.size();
+                });
+    }
+
+    /** Blocking lookup for worker/virtual-thread callers. */
+    public RoleRepresentation get(String roleName) {
+        return getAsync(roleName).await().indefinitely();
+    }
+
+    public Uni<RoleRepresentation> getAsync(String roleName) {
+        Entry e = roles.get(roleName);
+        if (e != null && clock.instant().isBefore(e.loadedAt().plus(ttl))) {
+            return Uni.createFrom().item(e.role());
+        }
+        return loading.computeIfAbsent(roleName, this::load);
+    }
+
+    private Uni<RoleRepresentation> load(String roleName) {
+        return Uni.createFrom().completionStage(tokens::token)
+                .chain(token -> limiter.limit(api.getRealmRole("Bearer " + token, roleName)))
+                .onFailure(WebApplicationException.class).transform(err -> new KcCallException(
+                        "Role not found: " + roleName, ((WebApplicationException) err).getResponse().getStatus()))
+                .invoke(r -> roles.put(roleName, new Entry(r, clock.instant())))
+                .onTermination().invoke(() -> loading.remove(roleName))
+                .memoize().indefinitely();
+    }
+
+    public Uni<List<RoleRepresentation>> getAllAsync(List<String> roleNames) {
+        if (roleNames.isEmpty()) return Uni.createFrom().item(List.of());
+        return Uni.join().all(roleNames.stream().map(this::getAsync).toList()).andFailFast();
+    }
+
+    public List<RoleRepresentation> getAll(List<String> roleNames) {
+        return getAllAsync(roleNames).await().indefinitely();
+    }
+
+    public void invalidate(String roleName) {
+        roles.remove(roleName);
+        loading.remove(roleName);
+    }
+
+    public void invalidateAll() {
+        roles.clear();
+        loading.clear();
+    }
+
+    public int size() {
+        return roles.size();
+    }
+
+    private record Entry(RoleRepresentation role, Instant loadedAt) {
+    }
+}
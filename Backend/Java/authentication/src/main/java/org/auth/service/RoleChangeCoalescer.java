@@ -0,0 +1,171 @@
+package org.auth.service;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ForbiddenException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-user realm role changes (the add/remove role endpoints), checked and ordered per user, optionally coalesced.
+ *
+ * Each change first runs in the user's {@link UserMutations} turn: the user must not be an administrator
+ * (403 otherwise, as administrator roles only change through promotion), then the change is written, or
+ * queued when coalescing.
+ *
+ * With a {@code window} above zero, changes for the same user are buffered for that long after the first
+ * one; the last change per role wins (an add followed by a remove cancel out; role names compare
+ * case-insensitively), the result is diffed against the user's direct realm role mappings (read from Keycloak,
+ * as inherited or composite roles have no mapping to add or remove) and at most one add and one remove
+ * call go to Keycloak. Each caller completes when the call carrying its roles does, or at once when
+ * its change turned out to be a no-op. With the default window of zero every change is written directly.
+ *
+ * A caller's turn ends once its change is queued, so concurrent requests for the same user share a batch. The
+ * batch is read and written in a turn of its own, which checks the user again: changes queued before the user
+ * became an administrator fail with 403 instead of being written.
+ */
+@ApplicationScoped
+public class RoleChangeCoalescer {
+
+    private static final Logger LOG = Logger.getLogger(RoleChangeCoalescer.class);
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private static final String ADMIN_ROLES_FORBIDDEN = "Administrator roles cannot be changed.";
+
+    @ConfigProperty(name = "keycloak.admin.roles.coalesce.window", defaultValue = "0ms")
+    Duration window;
+
+    @Inject
+    KcAdminReactiveService async;
+
+    @Inject
+    UserMutations mutations;
+
+    private final Map<String, Batch> pending = new ConcurrentHashMap<>();
+
+    private boolean enabled() {
+        return window.isPositive();
+    }
+
+    public Uni<Void> add(String userId, List<String> roles) {
+        return submit(userId, roles, true);
+    }
+
+    public Uni<Void> remove(String userId, List<String> roles) {
+        return submit(userId, roles, false);
+    }
+
+    private Uni<Void> submit(String userId, List<String> roles, boolean add) {
+        if (!enabled()) {
+            return mutations.serialized(userId, () -> notAdmin(userId)
+                    .chain(() -> add ? async.addRealmRoles(userId, roles) : async.removeRealmRoles(userId, roles)));
+        }
+        return mutations.serialized(userId, () -> notAdmin(userId).map(v -> enqueue(userId, new Change(List.copyOf(roles), add))))
+                .chain(change -> Uni.createFrom().completionStage(change.done)); // outside the turn
+    }
+
+    private Uni<Void> notAdmin(String userId) {
+        return async.userHasRealmRole(userId, "admin")
+                .invoke(isAdmin -> {
+                    if (isAdmin) throw new ForbiddenException(ADMIN_ROLES_FORBIDDEN);
+                })
+                .replaceWithVoid();
+    }
+
+    private Change enqueue(String userId, Change change) {
+        pending.compute(userId, (id, batch) -> {
+            if (batch == null) {
+                batch = new Batch();
+                Batch flushed = batch;
+                Uni.createFrom().voidItem().onItem().delayIt().by(window)
+                        .subscribe().with(v -> flush(id, flushed));
+            }
+            batch.changes.add(change);
+            return batch;
+        });
+        return change;
+    }
+
+    private void flush(String userId, Batch batch) {
+        mutations.serialized(userId, () -> {
+                    pending.remove(userId, batch); // changes queued after this turn start a new batch
+                    return notAdmin(userId).chain(() -> apply(userId, batch.changes));
+                })
+                .subscribe().with(
+                        v -> { },
+                        e -> batch.changes.forEach(c -> c.done.completeExceptionally(e))); // no write was sent
+    }
+
+    /** Diffs the batch against the user's direct mappings and writes what is left */
+    private Uni<Void> apply(String userId, List<Change> changes) {
+        Map<String, Boolean> net = new LinkedHashMap<>(); // lower-case role name -> add
+        Map<String, String> requested = new HashMap<>(); // lower-case role name -> last spelling asked for
+        for (Change c : changes) {
+            for (String role : c.roles) {
+                net.put(key(role), c.add);
+                requested.put(key(role), role);
+            }
+        }
+        return async.directRealmRoles(userId)
+                .chain(current -> Uni.createFrom().completionStage(write(userId, changes, net, requested, current)));
+    }
+
+    /** Sends the net change; the returned stage ends (never failing) once both calls did, callers are completed one by one */
+    private CompletableFuture<Void> write(String userId, List<Change> changes, Map<String, Boolean> net,
+                                          Map<String, String> requested, List<String> current) {
+        Map<String, String> mapped = new HashMap<>(); // lower-case role name -> name as mapped in Keycloak
+        current.forEach(role -> mapped.put(key(role), role));
+        Set<String> adding = new HashSet<>();
+        Set<String> removing = new HashSet<>();
+        List<String> toAdd = new ArrayList<>();
+        List<String> toRemove = new ArrayList<>();
+        net.forEach((role, add) -> {
+            if (add && !mapped.containsKey(role)) {
+                adding.add(role);
+                toAdd.add(requested.get(role));
+            }
+            if (!add && mapped.containsKey(role)) {
+                removing.add(role);
+                toRemove.add(mapped.get(role));
+            }
+        });
+        LOG.debugf("User %s: %d role changes coalesced into +%s -%s", userId, changes.size(), toAdd, toRemove);
+
+        CompletableFuture<Void> added = toAdd.isEmpty() ? DONE : async.addRealmRoles(userId, toAdd).subscribeAsCompletionStage();
+        CompletableFuture<Void> removed = toRemove.isEmpty() ? DONE : async.removeRealmRoles(userId, toRemove).subscribeAsCompletionStage();
+        for (Change c : changes) {
+            List<CompletableFuture<Void>> calls = new ArrayList<>(2);
+            if (c.roles.stream().map(RoleChangeCoalescer::key).anyMatch(adding::contains)) calls.add(added);
+            if (c.roles.stream().map(RoleChangeCoalescer::key).anyMatch(removing::contains)) calls.add(removed);
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).whenComplete((v, e) -> {
+                if (e == null) c.done.complete(null);
+                else c.done.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            });
+        }
+        return CompletableFuture.allOf(added, removed).handle((v, e) -> null);
+    }
+
+    private static String key(String role) {
+        return role.toLowerCase(Locale.ROOT);
+    }
+
+    private record Change(List<String> roles, boolean add, CompletableFuture<Void> done) {
+        Change(List<String> roles, boolean add) {
+            this(roles, add, new CompletableFuture<>());
+        }
+    }
+
+    /** Changes for one user waiting for the window to close; only touched in the user's turns */
+    private static final class Batch {
+        final List<Change> changes = new ArrayList<>();
+    }
+}
@@ -0,0 +1,109 @@
+package org.auth.service;
+
+import org.auth.client.KeycloakAdminApi;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.json.JsonArray;
+import jakarta.ws.rs.WebApplicationException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Remembers which user role-mapping endpoint the Keycloak server answers:
+ * {@code /role-mappings/realm/composite} (effective roles) or only the plain {@code /role-mappings/realm}.
+ *
+ * Probed at startup against any existing user and otherwise learnt on first use. The answer is
+ * forgotten after {@code interval} or when the remembered endpoint returns an unexpected status.
+ */
+@ApplicationScoped
+public class RoleMappingEndpoint {
+
+    private static final Logger LOG = Logger.getLogger(RoleMappingEndpoint.class);
+
+    public enum Variant { COMPOSITE, PLAIN }
+
+    @ConfigProperty(name = "keycloak.admin.roles.endpoint-probe.interval", defaultValue = "1h")
+    Duration interval;
+
+    @ConfigProperty(name = "keycloak.admin.roles.endpoint-probe.on-startup", defaultValue = "true")
+    boolean probeOnStartup;
+
+    @Inject
+    @RestClient
+    KeycloakAdminApi api;
+
+    @Inject
+    KcTokenManager tokens;
+
+    @Inject
+    KcAdminLimiter limiter;
+
+    Clock clock = Clock.systemUTC();
+
+    private final AtomicReference<Probe> probe = new AtomicReference<>();
+
+    void onStart(@Observes StartupEvent ev) {
+        if (!probeOnStartup) return;
+        try {
+            Variant v = probe().await().indefinitely();
+            if (v != null) LOG.infof("Keycloak role-mapping endpoint: %s", v);
+        } catch (RuntimeException e) {
+            // learnt on first use instead
+            LOG.warnf("Role-mapping endpoint probe failed: %s", e.getMessage());
+        }
+    }
+
+    /** Asks for the effective roles of the first user; null (nothing recorded) when the realm has no users. */
+    public Uni<Variant> probe() {
+        return Uni.createFrom().completionStage(tokens::token)
+                .map(token -> "Bearer " + token)
+                .chain(bearer -> limiter.limit(api.listUsers(bearer, null, 0, 1))
+                        .chain(raw -> {
+                            JsonArray users = KcAdminService.readArray(raw);
+                            if (users.isEmpty()) return Uni.createFrom().nullItem();
+                            String userId = users.getJsonObject(0).getString("id");
+                            return limiter.limit(api.getEffectiveRealmRoles(bearer, userId))
+                                    .map(roles -> Variant.COMPOSITE)
+                                    .onFailure(e -> status(e) == 404).recoverWithItem(Variant.PLAIN);
+                        }))
+                .onFailure(WebApplicationException.class).transform(e -> KcCallException.of("Role-mapping endpoint probe failed", e))
+                .invoke(v -> { if (v != null) record(v); });
+    }
+
+    /** The remembered variant, or null when unknown or older than {@code interval}. */
+    public Variant known() {
+        Probe p = probe.get();
+        if (p == null || !clock.instant().isBefore(p.probedAt().plus(interval))) return null;
+        return p.variant();
+    }
+
+    public void record(Variant variant) {
+        Probe p = probe.get();
+        // keep the original timestamp so the interval still forces a re-probe
+        if (p != null && p.variant() == variant && known() != null) return;
+        probe.set(new Probe(variant, clock.instant()));
+    }
+
+    /** Auth errors and 404 (unknown user) say nothing about the server; anything else triggers a re-probe. */
+    public void unexpected(int status) {
+        if (status == 401 || status == 403 || status == 404) return;
+        probe.set(null);
+    }
+
+    static int status(Throwable e) {
+        return e instanceof WebApplicationException wae ? wae.getResponse().getStatus() : -1;
+    }
+
+    private record Probe(Variant variant, Instant probedAt) {
+    }
+}
@@ -0,0 +1,71 @@
+package org.auth.service;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.json.JsonObject;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded userId -&gt; Keycloak user representation cache (LRU + TTL) behind the user lookup.
+ *
+ * Only the representation itself is kept; realm roles come from {@link UserRoleCache}. Updates done
+ * through this service drop the entry, changes made directly in Keycloak show up after the TTL.
+ */
+@ApplicationScoped
+public class UserCache {
+
+    @ConfigProperty(name = "keycloak.admin.cache.users.ttl", defaultValue = "30s")
+    Duration ttl;
+
+    @ConfigProperty(name = "keycloak.admin.cache.users.max-size", defaultValue = "10000")
+    int maxSize;
+
+    Clock clock = Clock.systemUTC();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    public Optional<JsonObject> get(String userId) {
+        lock.lock();
+        try {
+            Entry e = entries.get(userId);
+            if (e != null && clock.instant().isBefore(e.loadedAt().plus(ttl))) return Optional.of(e.user());
+            if (e != null) entries.remove(userId);
+            return Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(String userId, JsonObject user) {
+        lock.lock();
+        try {
+            entries.put(userId, new Entry(user, clock.instant()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(String userId) {
+        lock.lock();
+        try {
+            entries.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Entry(JsonObject user, Instant loadedAt) {
+    }
+}
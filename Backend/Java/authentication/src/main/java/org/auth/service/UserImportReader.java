@@ -0,0 +1,166 @@
+package org.auth.service;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonParsingException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads users one row at a time from an upload, so the file is never held in memory.
+ * <ul>
+ *   <li>CSV: header row naming the columns ({@code username,email,password} required;
+ *       {@code emailVerified,enabled,realmRoles,groups} optional, lists separated by {@code ;});</li>
+ *   <li>NDJSON: one object per line with the fields of POST /users.</li>
+ * </ul>
+ * A malformed row becomes a {@link Row} carrying an error instead of stopping the import.
+ */
+public final class UserImportReader implements Closeable {
+
+    public enum Format { CSV, NDJSON }
+
+    /** {@code index} counts data rows from 0 (header and blank lines excluded). */
+    public record Row(int index, NewUser user, String error) {
+    }
+
+    private final Format format;
+    private final BufferedReader in;
+    private final Map<String, Integer> columns;
+    private int index;
+
+    private UserImportReader(Format format, BufferedReader in, Map<String, Integer> columns) {
+        this.format = format;
+        this.in = in;
+        this.columns = columns;
+    }
+
+    /** Opens the upload; for CSV the header row is read and validated right away. */
+    public static UserImportReader open(Format format, InputStream upload) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(upload, StandardCharsets.UTF_8));
+        if (format == Format.NDJSON) return new UserImportReader(format, in, Map.of());
+
+        String header = nextLine(in);
+        if (header == null) throw new IllegalArgumentException("CSV header row required");
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        for (int i = 0; i < names.size(); i++) columns.put(names.get(i).trim(), i);
+        for (String required : List.of("username", "email", "password")) {
+            if (!columns.containsKey(required)) throw new IllegalArgumentException("CSV column missing: " + required);
+        }
+        return new UserImportReader(format, in, columns);
+    }
+
+    /** Next data row, or null at the end of the upload. */
+    public Row next() throws IOException {
+        String line = nextLine(in);
+        if (line == null) return null;
+        int i = index++;
+        try {
+            return new Row(i, format == Format.CSV ? fromCsv(line) : fromJson(line), null);
+        } catch (IllegalArgumentException | JsonParsingException | ClassCastException e) {
+            return new Row(i, null, "Invalid row: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /* =================== formats =================== */
+
+    private NewUser fromCsv(String line) {
+        List<String> cells = splitCsv(line);
+        return new NewUser(
+                cell(cells, "username"),
+                cell(cells, "email"),
+                cell(cells, "password"),
+                bool(cell(cells, "emailVerified"), true),
+                bool(cell(cells, "enabled"), true),
+                list(cell(cells, "realmRoles")),
+                list(cell(cells, "groups")));
+    }
+
+    private String cell(List<String> cells, String column) {
+        Integer i = columns.get(column);
+        if (i == null || i >= cells.size()) return null;
+        String v = cells.get(i).trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    private static NewUser fromJson(String line) {
+        JsonObject o = Json.createReader(new StringReader(line)).readObject();
+        return new NewUser(
+                o.getString("username", null),
+                o.getString("email", null),
+                o.getString("password", null),
+                o.getBoolean("emailVerified", true),
+                o.getBoolean("enabled", true),
+                strings(o, "realmRoles"),
+                strings(o, "groups"));
+    }
+
+    private static List<String> strings(JsonObject o, String key) {
+        if (!o.containsKey(key) || o.isNull(key)) return List.of();
+        return o.getJsonArray(key).stream()
+                .filter(v -> v.getValueType() == JsonValue.ValueType.STRING)
+                .map(v -> ((JsonString) v).getString())
+                .toList();
+    }
+
+    private static boolean bool(String v, boolean fallback) {
+        if (v == null) return fallback;
+        if (v.equalsIgnoreCase("true")) return true;
+        if (v.equalsIgnoreCase("false")) return false;
+        throw new IllegalArgumentException("not a boolean: " + v);
+    }
+
+    private static List<String> list(String v) {
+        if (v == null) return List.of();
+        return Arrays.stream(v.split(";")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    /* =================== line handling =================== */
+
+    private static String nextLine(BufferedReader in) throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+        } while (line != null && line.isBlank());
+        return line;
+    }
+
+    /** One CSV record (RFC 4180 quoting; quoted fields may not span lines). */
+    static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("unterminated quote");
+        cells.add(cell.toString());
+        return cells;
+    }
+}
@@ -0,0 +1,108 @@
+package org.auth.service;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Orders the mutations (check, then write) against one user: each runs after the previous one for the
+ * same user finished, in arrival order; mutations on different users never wait for each other.
+ *
+ * One queue per user id, kept only while something is queued, shared by blocking callers ({@link #locked})
+ * and non-blocking ones ({@link #serialized}), which never block a thread while waiting.
+ * Not reentrant: a mutation must not start another one for the same user.
+ */
+@ApplicationScoped
+public class UserMutations {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    /** Last queued mutation per user; completed (and removed) when it finished */
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    private final LongAdder mutations = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /** Runs {@code action} on the calling thread once the user's previous mutations finished */
+    public <T> T locked(String userId, Supplier<T> action) {
+        Turn turn = new Turn(userId);
+        try {
+            turn.previous.get();
+            turn.started();
+            return action.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for another change to user " + userId);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e); // never: turns only complete normally
+        } finally {
+            turn.release();
+        }
+    }
+
+    /** Subscribes to {@code action} once the user's previous mutations finished; the turn ends with its outcome */
+    public <T> Uni<T> serialized(String userId, Supplier<Uni<T>> action) {
+        return Uni.createFrom().deferred(() -> {
+            Turn turn = new Turn(userId);
+            // a copy, so that cancelling this wait never completes the previous turn
+            return Uni.createFrom().completionStage(turn.previous::copy)
+                    .invoke(turn::started)
+                    .chain(() -> action.get())
+                    .onTermination().invoke(turn::release);
+        });
+    }
+
+    public Stats stats() {
+        return new Stats(mutations.sum(), contended.sum(), waiting.get(), waitNanos.sum() / 1_000_000, tails.size());
+    }
+
+    /**
+     * {@code contended}: mutations that had to wait for another one on the same user; {@code waiting}: waiting now;
+     * {@code waitMillis}: total time spent waiting; {@code users}: users with a mutation running or queued.
+     */
+    public record Stats(long mutations, long contended, int waiting, long waitMillis, int users) {
+    }
+
+    private final class Turn {
+        final String userId;
+        final CompletableFuture<Void> mine = new CompletableFuture<>();
+        final CompletableFuture<Void> previous;
+        final long queuedAt = System.nanoTime();
+        final AtomicBoolean started = new AtomicBoolean();
+
+        Turn(String userId) {
+            this.userId = userId;
+            CompletableFuture<Void> last = tails.put(userId, mine);
+            previous = last == null ? DONE : last;
+            mutations.increment();
+            if (!previous.isDone()) contended.increment();
+            waiting.incrementAndGet();
+        }
+
+        void started() {
+            if (!started.compareAndSet(false, true)) return;
+            waiting.decrementAndGet();
+            waitNanos.add(System.nanoTime() - queuedAt);
+        }
+
+        /** Hands over to the next turn, but never before the previous one (a turn may end while still waiting) */
+        void release() {
+            if (!started.getAndSet(true)) waiting.decrementAndGet();
+            previous.whenComplete((v, e) -> {
+                tails.remove(userId, mine);
+                mine.complete(null);
+            });
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.auth.service;
+
+import org.auth.client.RoleRepresentation;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded userId -&gt; effective realm role names cache (LRU + TTL).
+ *
+ * Writes done through this service keep it current: adding non-composite roles updates the
+ * entry in place, anything else (removals, composite roles) drops it. Every such write also
+ * bumps the user's generation: a load that read Keycloak before the write passes the generation
+ * it started with to {@link #put(String, long, List)} and is then not stored. A ReentrantLock
+ * guards the LRU maps so virtual threads are never pinned.
+ */
+@ApplicationScoped
+public class UserRoleCache {
+
+    @ConfigProperty(name = "keycloak.admin.cache.user-roles.ttl", defaultValue = "30s")
+    Duration ttl;
+
+    @ConfigProperty(name = "keycloak.admin.cache.user-roles.max-size", defaultValue = "10000")
+    int maxSize;
+
+    Clock clock = Clock.systemUTC();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /** Sequence of the last write per user; users whose record was evicted count as written at {@code evictedWrites} */
+    private long writes;
+    private long evictedWrites;
+    private final LinkedHashMap<String, Long> lastWrite = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            if (size() > maxSize) {
+                evictedWrites = Math.max(evictedWrites, eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public Optional<List<String>> get(String userId) {
+        lock.lock();
+        try {
+            Entry e = entries.get(userId);
+            if (e != null && clock.instant().isBefore(e.loadedAt().plus(ttl))) {
+                hits.increment();
+                return Optional.of(e.roles());
+            }
+            if (e != null) entries.remove(userId);
+            misses.increment();
+            return Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** To be read before loading the user's roles from Keycloak, and handed to {@link #put(String, long, List)} */
+    public long generation(String userId) {
+        lock.lock();
+        try {
+            return writes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Stores roles loaded at {@code generation}, unless a write for the user happened since */
+    public void put(String userId, long generation, List<String> roles) {
+        lock.lock();
+        try {
+            if (lastWrite.getOrDefault(userId, evictedWrites) > generation) return;
+            entries.put(userId, new Entry(List.copyOf(roles), clock.instant()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write-through after roles were mapped to the user. Plain roles are merged into the entry
+     * (keeping its load time); a composite role may grant more than itself, so the entry is dropped.
+     */
+    public void added(String userId, List<RoleRepresentation> roles) {
+        if (roles.stream().anyMatch(r -> !Boolean.FALSE.equals(r.composite))) {
+            invalidate(userId);
+            return;
+        }
+        lock.lock();
+        try {
+            lastWrite.put(userId, ++writes);
+            Entry e = entries.get(userId);
+            if (e == null) return;
+            List<String> merged = new ArrayList<>(e.roles());
+            for (RoleRepresentation r : roles) {
+                if (merged.stream().noneMatch(r.name::equalsIgnoreCase)) merged.add(r.name);
+            }
+            entries.put(userId, new Entry(List.copyOf(merged), e.loadedAt()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Removals always drop the entry: the role may still be inherited through a composite. */
+    public void invalidate(String userId) {
+        lock.lock();
+        try {
+            lastWrite.put(userId, ++writes);
+            entries.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size) {
+    }
+
+    private record Entry(List<String> roles, Instant loadedAt) {
+    }
+}
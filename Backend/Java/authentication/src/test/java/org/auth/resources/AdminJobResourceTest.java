@@ -0,0 +1,139 @@
+package org.auth.resources;
+
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.core.Response;
+import org.auth.resources.AdminJobResource.JobOperation;
+import org.auth.resources.AdminJobResource.JobReq;
+import org.auth.service.AdminJobs;
+import org.auth.service.AdminJobs.State;
+import org.auth.service.AdminJobs.Status;
+import org.auth.service.BatchItemResult;
+import org.auth.service.KcAdminService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Pure unit tests for AdminJobResource.
+ * AdminJobs is mocked; submitted work is run by hand against a mocked KcAdminService.
+ */
+public class AdminJobResourceTest {
+
+    private static Status queued(String id, Integer total) {
+        return new Status(id, "SET_ENABLED", State.QUEUED, total, 0, 0, total, Instant.EPOCH, null, null);
+    }
+
+    @Test
+    void submit_setEnabled_returns202WithLocation_andWorkCallsService() {
+        AdminJobs jobs = mock(AdminJobs.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AdminJobResource resource = new AdminJobResource(jobs, identity);
+
+        JobReq req = new JobReq();
+        req.operation = JobOperation.SET_ENABLED;
+        req.enabled = false;
+        req.userIds = List.of("u1", "u2");
+        when(jobs.maxItems()).thenReturn(10);
+        when(jobs.submit(eq("SET_ENABLED"), eq(2), any())).thenReturn(queued("j1", 2));
+
+        Response res = resource.submit(req);
+
+        assertEquals(Response.Status.ACCEPTED.getStatusCode(), res.getStatus());
+        assertTrue(res.getLocation().toString().endsWith("/api/auth/jobs/j1"));
+
+        ArgumentCaptor<AdminJobs.Work> work = ArgumentCaptor.forClass(AdminJobs.Work.class);
+        verify(jobs).submit(eq("SET_ENABLED"), eq(2), work.capture());
+        KcAdminService kc = mock(KcAdminService.class);
+        Consumer<BatchItemResult> progress = r -> { };
+        work.getValue().run(kc, progress);
+        verify(kc).setEnabled(List.of("u1", "u2"), false, progress);
+    }
+
+    @Test
+    void submit_realmRolesBySearch_hasNoTotal() {
+        AdminJobs jobs = mock(AdminJobs.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AdminJobResource resource = new AdminJobResource(jobs, identity);
+
+        JobReq req = new JobReq();
+        req.operation = JobOperation.REMOVE_REALM_ROLES;
+        req.roles = List.of("client");
+        req.search = "@partner.com";
+        when(jobs.submit(eq("REMOVE_REALM_ROLES"), isNull(), any())).thenReturn(queued("j2", null));
+
+        resource.submit(req);
+
+        verify(jobs).submit(eq("REMOVE_REALM_ROLES"), isNull(), any());
+    }
+
+    @Test
+    void submit_invalidOrForbidden_neverQueues() {
+        AdminJobs jobs = mock(AdminJobs.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AdminJobResource resource = new AdminJobResource(jobs, identity);
+
+        JobReq adminRole = new JobReq();
+        adminRole.operation = JobOperation.ADD_REALM_ROLES;
+        adminRole.roles = List.of("admin");
+        adminRole.userIds = List.of("u1");
+        when(jobs.maxItems()).thenReturn(10);
+        assertThrows(ForbiddenException.class, () -> resource.submit(adminRole));
+
+        JobReq create = new JobReq();
+        create.operation = JobOperation.CREATE_USERS;
+        create.users = List.of(new AuthAdminResource.CreateUserReq());
+        when(identity.hasRole("admin")).thenReturn(false);
+        assertThrows(ForbiddenException.class, () -> resource.submit(create));
+
+        JobReq noEnabled = new JobReq();
+        noEnabled.operation = JobOperation.SET_ENABLED;
+        noEnabled.userIds = List.of("u1");
+        assertThrows(BadRequestException.class, () -> resource.submit(noEnabled));
+
+        verify(jobs, never()).submit(any(), any(), any());
+    }
+
+    @Test
+    void submit_queueFull_returns503() {
+        AdminJobs jobs = mock(AdminJobs.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AdminJobResource resource = new AdminJobResource(jobs, identity);
+
+        JobReq req = new JobReq();
+        req.operation = JobOperation.SET_ENABLED;
+        req.enabled = true;
+        req.userIds = List.of("u1");
+        when(jobs.maxItems()).thenReturn(10);
+        when(jobs.submit(any(), any(), any())).thenThrow(new RejectedExecutionException());
+
+        Response res = resource.submit(req);
+
+        assertEquals(503, res.getStatus());
+        assertEquals(Map.of("error", "Job queue is full, retry later"), res.getEntity());
+    }
+
+    @Test
+    void statusAndCancel_unknownJob_throwNotFound() {
+        AdminJobs jobs = mock(AdminJobs.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AdminJobResource resource = new AdminJobResource(jobs, identity);
+        when(jobs.status("nope")).thenReturn(Optional.empty());
+        when(jobs.cancel("nope")).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> resource.status("nope"));
+        assertThrows(NotFoundException.class, () -> resource.events("nope"));
+        assertThrows(NotFoundException.class, () -> resource.cancel("nope"));
+    }
+}
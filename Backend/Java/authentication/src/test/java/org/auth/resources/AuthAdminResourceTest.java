@@ -1,19 +1,36 @@
 package org.auth.resources;
 
 import io.quarkus.security.identity.SecurityIdentity;
+import io.vertx.core.buffer.Buffer;
 import jakarta.json.Json;
+import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.auth.resources.AuthAdminResource.BatchCreateUsersReq;
+import org.auth.resources.AuthAdminResource.BatchRes;
+import org.auth.resources.AuthAdminResource.BulkEnabledReq;
+import org.auth.resources.AuthAdminResource.BulkRolesReq;
 import org.auth.resources.AuthAdminResource.CreateUserReq;
+import org.auth.resources.AuthAdminResource.LookupReq;
+import org.auth.service.BatchItemResult;
 import org.auth.service.KcAdminService;
+import org.auth.service.KcCallException;
+import org.auth.service.NewUser;
+import org.auth.service.Promotion;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -43,8 +60,12 @@ public class AuthAdminResourceTest {
 
         String expectedId = "5b2a9f0a-8d7a-4b1e-9c2b-1234567890ab";
 
-        when(kc.createUser("nico", "nico@example.com", true, true))
-                .thenReturn(expectedId);
+        req.realmRoles = List.of("Customer");
+        req.groups = List.of("/customers");
+
+        NewUser expectedUser = new NewUser("nico", "nico@example.com", "S3cretPwd!", true, true,
+                List.of("Customer"), List.of("/customers"));
+        when(kc.createUser(expectedUser)).thenReturn(expectedId);
 
         // Act
         Response response = resource.createUser(req);
@@ -57,11 +78,29 @@ public class AuthAdminResourceTest {
         assertNotNull(body);
         assertEquals(expectedId, body.get("id"));
 
-        verify(kc).createUser("nico", "nico@example.com", true, true);
-        verify(kc).setPassword(expectedId, "S3cretPwd!", false);
+        // password, groups and roles travel with the create call: no follow-up calls from the resource
+        verify(kc).createUser(expectedUser);
         verifyNoMoreInteractions(kc);
     }
 
+    @Test
+    void createUser_withAdminRole_throwsForbidden() {
+        // Arrange
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        CreateUserReq req = new CreateUserReq();
+        req.username = "nico";
+        req.email = "nico@example.com";
+        req.password = "S3cretPwd!";
+        req.realmRoles = List.of("Customer", "admin");
+
+        // Act + Assert
+        assertThrows(ForbiddenException.class, () -> resource.createUser(req));
+        verifyNoInteractions(kc);
+    }
+
     @Test
     void createUser_missingFields_throwsBadRequest() {
         // Arrange
@@ -83,6 +122,101 @@ public class AuthAdminResourceTest {
         verifyNoInteractions(kc);
     }
 
+    /* ==================== POST /users/batch ==================== */
+
+    @Test
+    void createUsers_ok_returnsPerItemResults() {
+        // Arrange
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        CreateUserReq a = new CreateUserReq();
+        a.username = "aleja";
+        a.email = "aleja@example.com";
+        a.password = "S3cretPwd!";
+        CreateUserReq b = new CreateUserReq();
+        b.username = "nico";
+        b.email = "nico@example.com";
+        b.password = "S3cretPwd!";
+        BatchCreateUsersReq req = new BatchCreateUsersReq();
+        req.users = List.of(a, b);
+
+        List<NewUser> expected = List.of(
+                new NewUser("aleja", "aleja@example.com", "S3cretPwd!", true, true),
+                new NewUser("nico", "nico@example.com", "S3cretPwd!", true, true));
+        when(kc.maxBatchSize()).thenReturn(100);
+        when(kc.createUsers(expected)).thenReturn(List.of(
+                BatchItemResult.ok(0, "id-1"),
+                BatchItemResult.failed(1, null, new KcCallException("Create user failed: 409", 409))));
+
+        // Act
+        Response response = resource.createUsers(req);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        BatchRes body = (BatchRes) response.getEntity();
+        assertEquals(1, body.succeeded);
+        assertEquals(1, body.failed);
+        assertEquals("id-1", body.results.get(0).id());
+        assertEquals(409, body.results.get(1).status());
+        verify(kc).createUsers(expected);
+    }
+
+    @Test
+    void createUsers_overMaxSize_throwsBadRequest() {
+        // Arrange
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        BatchCreateUsersReq req = new BatchCreateUsersReq();
+        req.users = List.of(new CreateUserReq(), new CreateUserReq());
+        when(kc.maxBatchSize()).thenReturn(1);
+
+        // Act + Assert
+        assertThrows(BadRequestException.class, () -> resource.createUsers(req));
+        verify(kc, never()).createUsers(any());
+    }
+
+    /* ==================== POST /users/import ==================== */
+
+    @Test
+    void importUsers_csvWithoutRequiredColumn_throwsBadRequest() {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        ByteArrayInputStream upload = new ByteArrayInputStream("username,password\n".getBytes(StandardCharsets.UTF_8));
+
+        BadRequestException ex = assertThrows(BadRequestException.class,
+                () -> resource.importUsers("text/csv", upload));
+        assertTrue(ex.getMessage().contains("email"));
+        verifyNoInteractions(kc);
+    }
+
+    @Test
+    void importUsers_ndjson_streamsServiceResults_andVetoesAdminRole() throws Exception {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        ByteArrayInputStream upload = new ByteArrayInputStream("{}\n".getBytes(StandardCharsets.UTF_8));
+        doAnswer(inv -> {
+            Function<NewUser, String> check = inv.getArgument(1);
+            String veto = check.apply(new NewUser("x", "x@x", "p", true, true, List.of("admin"), List.of()));
+            inv.<OutputStream>getArgument(2).write(veto.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(kc).importUsers(any(), any(), any());
+
+        Response res = resource.importUsers("application/x-ndjson; charset=utf-8", upload);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) res.getEntity()).write(out);
+
+        assertEquals("application/x-ndjson", res.getMediaType().toString());
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("admin"));
+    }
+
     /* ==================== PUT /users/{id}/password ==================== */
 
     @Test
@@ -143,25 +277,76 @@ public class AuthAdminResourceTest {
     /* ==================== GET /users ==================== */
 
     @Test
-    void listUsers_ok_delegatesToServiceAndReturnsJsonString() {
+    void listUsers_ok_passesKeycloakBytesThrough() {
         KcAdminService kc = mock(KcAdminService.class);
         SecurityIdentity identity = mock(SecurityIdentity.class);
         AuthAdminResource resource = new AuthAdminResource(kc, identity);
 
-        String expectedJson = "[{\"id\":\"u1\",\"username\":\"nico\"}]";
+        Buffer expectedJson = Buffer.buffer("[{\"id\":\"u1\",\"username\":\"nico\"}]");
 
         when(kc.listUsersRaw("nico", 0, 10)).thenReturn(expectedJson);
 
-        Response res = resource.listUsers("nico", 0, 10);
+        Response res = resource.listUsers("nico", 0, 10, null);
 
         assertEquals(Response.Status.OK.getStatusCode(), res.getStatus());
         assertEquals(MediaType.APPLICATION_JSON_TYPE, res.getMediaType());
-        assertEquals(expectedJson, res.getEntity());
+        assertSame(expectedJson, res.getEntity());
 
         verify(kc).listUsersRaw("nico", 0, 10);
         verifyNoMoreInteractions(kc);
     }
 
+    @Test
+    void listUsers_includeRealmRoles_returnsJoinedPage() {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        JsonArray joined = Json.createArrayBuilder()
+                .add(Json.createObjectBuilder().add("id", "u1").add("realmRoles", Json.createArrayBuilder().add("Customer")))
+                .build();
+        when(kc.listUsersWithRealmRoles(null, 0, 100)).thenReturn(joined);
+
+        Response res = resource.listUsers(null, 0, 100, "realmRoles");
+
+        assertSame(joined, res.getEntity());
+        verify(kc, never()).listUsersRaw(any(), any(), any());
+    }
+
+    @Test
+    void listUsers_unknownInclude_throwsBadRequest() {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        assertThrows(BadRequestException.class, () -> resource.listUsers(null, 0, 100, "groups"));
+        verifyNoInteractions(kc);
+    }
+
+    /* ==================== GET /users/export ==================== */
+
+    @Test
+    void exportUsers_streamsServiceOutputAsNdjson() throws Exception {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        doAnswer(inv -> {
+            inv.<OutputStream>getArgument(1).write("{\"id\":\"u1\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(kc).exportUsers(eq("nico"), any());
+
+        Response res = resource.exportUsers("nico");
+        verifyNoInteractions(kc); // nothing is fetched until the body is written
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) res.getEntity()).write(out);
+
+        assertEquals(Response.Status.OK.getStatusCode(), res.getStatus());
+        assertEquals("application/x-ndjson", res.getMediaType().toString());
+        assertEquals("{\"id\":\"u1\"}\n", out.toString(StandardCharsets.UTF_8));
+    }
+
     /* ==================== GET /users/{id} ==================== */
 
     @Test
@@ -276,6 +461,77 @@ public class AuthAdminResourceTest {
         verifyNoMoreInteractions(kc);
     }
 
+    /* ==================== POST /users/lookup ==================== */
+
+    @Test
+    void lookupUsers_ok_returnsServiceMap() {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        LookupReq req = new LookupReq();
+        req.userIds = List.of("u1", "u1");
+        Map<String, JsonObject> found = Map.of("u1", Json.createObjectBuilder().add("id", "u1").build());
+        when(kc.maxBatchSize()).thenReturn(100);
+        when(kc.lookupUsers(List.of("u1", "u1"))).thenReturn(found);
+
+        Response res = resource.lookupUsers(req);
+
+        assertEquals(Response.Status.OK.getStatusCode(), res.getStatus());
+        assertSame(found, res.getEntity());
+    }
+
+    @Test
+    void lookupUsers_empty_throwsBadRequest() {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        assertThrows(BadRequestException.class, () -> resource.lookupUsers(new LookupReq()));
+        verifyNoInteractions(kc);
+    }
+
+    /* ==================== PUT /users/enabled/bulk ==================== */
+
+    @Test
+    void bulkSetEnabled_disable_streamsServiceResults() throws Exception {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        BulkEnabledReq req = new BulkEnabledReq();
+        req.enabled = false;
+        req.userIds = List.of("u1", "u2");
+        when(kc.maxBatchSize()).thenReturn(100);
+        doAnswer(inv -> {
+            inv.<OutputStream>getArgument(2).write("{\"index\":1,\"id\":\"u2\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(kc).bulkSetEnabled(eq(List.of("u1", "u2")), eq(false), any());
+
+        Response res = resource.bulkSetEnabled(req);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) res.getEntity()).write(out);
+
+        assertEquals("application/x-ndjson", res.getMediaType().toString());
+        assertEquals("{\"index\":1,\"id\":\"u2\"}\n", out.toString(StandardCharsets.UTF_8));
+        verify(kc, never()).setEnabled(anyString(), anyBoolean());
+    }
+
+    @Test
+    void bulkSetEnabled_overMaxSize_throwsBadRequest() throws Exception {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        BulkEnabledReq req = new BulkEnabledReq();
+        req.enabled = false;
+        req.userIds = List.of("u1", "u2");
+        when(kc.maxBatchSize()).thenReturn(1);
+
+        assertThrows(BadRequestException.class, () -> resource.bulkSetEnabled(req));
+        verify(kc, never()).bulkSetEnabled(any(), anyBoolean(), any());
+    }
+
     /* ==================== POST /users/{id}/roles/realm ==================== */
 
     @Test
@@ -288,12 +544,9 @@ public class AuthAdminResourceTest {
         AuthAdminResource.RolesReq req = new AuthAdminResource.RolesReq();
         req.roles = List.of("Customer", "client");
 
-        when(kc.userHasRealmRole(userId, "admin")).thenReturn(false);
-
         Response res = resource.addRealmRoles(userId, req);
 
         assertEquals(Response.Status.NO_CONTENT.getStatusCode(), res.getStatus());
-        verify(kc).userHasRealmRole(userId, "admin");
         verify(kc).addRealmRoles(userId, req.roles);
         verifyNoMoreInteractions(kc);
     }
@@ -327,7 +580,8 @@ public class AuthAdminResourceTest {
         AuthAdminResource.RolesReq req = new AuthAdminResource.RolesReq();
         req.roles = List.of("Customer");
 
-        when(kc.userHasRealmRole(userId, "admin")).thenReturn(true);
+        // checked by the service, in the user's turn
+        doThrow(new ForbiddenException("Administrator roles cannot be changed.")).when(kc).addRealmRoles(userId, req.roles);
 
         ForbiddenException ex = assertThrows(
                 ForbiddenException.class,
@@ -335,8 +589,7 @@ public class AuthAdminResourceTest {
         );
 
         assertTrue(ex.getMessage().contains("Administrator roles cannot be changed."));
-        verify(kc).userHasRealmRole(userId, "admin");
-        verify(kc, never()).addRealmRoles(anyString(), anyList());
+        verify(kc).addRealmRoles(userId, req.roles);
         verifyNoMoreInteractions(kc);
     }
 
@@ -350,17 +603,13 @@ public class AuthAdminResourceTest {
         AuthAdminResource.RolesReq req = new AuthAdminResource.RolesReq();
         req.roles = List.of("admin", "Customer");
 
-        when(kc.userHasRealmRole(userId, "admin")).thenReturn(false);
-
         ForbiddenException ex = assertThrows(
                 ForbiddenException.class,
                 () -> resource.addRealmRoles(userId, req)
         );
 
         assertTrue(ex.getMessage().contains("admin"));
-        verify(kc).userHasRealmRole(userId, "admin");
-        verify(kc, never()).addRealmRoles(anyString(), anyList());
-        verifyNoMoreInteractions(kc);
+        verifyNoInteractions(kc);
     }
 
     /* ==================== DELETE /users/{id}/roles/realm ==================== */
@@ -375,12 +624,9 @@ public class AuthAdminResourceTest {
         AuthAdminResource.RolesReq req = new AuthAdminResource.RolesReq();
         req.roles = List.of("Customer");
 
-        when(kc.userHasRealmRole(userId, "admin")).thenReturn(false);
-
         Response res = resource.removeRealmRoles(userId, req);
 
         assertEquals(Response.Status.NO_CONTENT.getStatusCode(), res.getStatus());
-        verify(kc).userHasRealmRole(userId, "admin");
         verify(kc).removeRealmRoles(userId, req.roles);
         verifyNoMoreInteractions(kc);
     }
@@ -414,7 +660,8 @@ public class AuthAdminResourceTest {
         AuthAdminResource.RolesReq req = new AuthAdminResource.RolesReq();
         req.roles = List.of("Customer");
 
-        when(kc.userHasRealmRole(userId, "admin")).thenReturn(true);
+        // checked by the service, in the user's turn
+        doThrow(new ForbiddenException("Administrator roles cannot be changed.")).when(kc).removeRealmRoles(userId, req.roles);
 
         ForbiddenException ex = assertThrows(
                 ForbiddenException.class,
@@ -422,8 +669,7 @@ public class AuthAdminResourceTest {
         );
 
         assertTrue(ex.getMessage().contains("Administrator roles cannot be changed."));
-        verify(kc).userHasRealmRole(userId, "admin");
-        verify(kc, never()).removeRealmRoles(anyString(), anyList());
+        verify(kc).removeRealmRoles(userId, req.roles);
         verifyNoMoreInteractions(kc);
     }
 
@@ -437,30 +683,96 @@ public class AuthAdminResourceTest {
         AuthAdminResource.RolesReq req = new AuthAdminResource.RolesReq();
         req.roles = List.of("Customer", "admin");
 
-        when(kc.userHasRealmRole(userId, "admin")).thenReturn(false);
-
         ForbiddenException ex = assertThrows(
                 ForbiddenException.class,
                 () -> resource.removeRealmRoles(userId, req)
         );
 
         assertTrue(ex.getMessage().contains("admin"));
-        verify(kc).userHasRealmRole(userId, "admin");
-        verify(kc, never()).removeRealmRoles(anyString(), anyList());
+        verifyNoInteractions(kc);
+    }
+
+    /* ==================== POST/DELETE /users/roles/realm/bulk ==================== */
+
+    @Test
+    void bulkAddRealmRoles_byIds_returnsPerUserResults() {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        BulkRolesReq req = new BulkRolesReq();
+        req.roles = List.of("Customer");
+        req.userIds = List.of("u1", "u2");
+        when(kc.maxBatchSize()).thenReturn(100);
+        when(kc.bulkAddRealmRoles(List.of("u1", "u2"), List.of("Customer"))).thenReturn(List.of(
+                BatchItemResult.ok(0, "u1"),
+                new BatchItemResult(1, "u2", 403, "Administrator roles cannot be changed.")));
+
+        Response res = resource.bulkAddRealmRoles(req);
+
+        BatchRes body = (BatchRes) res.getEntity();
+        assertEquals(1, body.succeeded);
+        assertEquals(1, body.failed);
+        verify(kc, never()).bulkAddRealmRolesMatching(any(), any());
+    }
+
+    @Test
+    void bulkRemoveRealmRoles_bySearch_usesSearch() {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        BulkRolesReq req = new BulkRolesReq();
+        req.roles = List.of("client");
+        req.search = "@partner.com";
+        when(kc.bulkRemoveRealmRolesMatching("@partner.com", List.of("client"))).thenReturn(List.of());
+
+        resource.bulkRemoveRealmRoles(req);
+
+        verify(kc).bulkRemoveRealmRolesMatching("@partner.com", List.of("client"));
         verifyNoMoreInteractions(kc);
     }
 
+    @Test
+    void bulkAddRealmRoles_idsAndSearchTogether_throwsBadRequest() {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        BulkRolesReq req = new BulkRolesReq();
+        req.roles = List.of("Customer");
+        req.userIds = List.of("u1");
+        req.search = "nico";
+
+        assertThrows(BadRequestException.class, () -> resource.bulkAddRealmRoles(req));
+        verifyNoInteractions(kc);
+    }
+
+    @Test
+    void bulkAddRealmRoles_adminRole_throwsForbidden() {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        BulkRolesReq req = new BulkRolesReq();
+        req.roles = List.of("admin");
+        req.search = "nico";
+
+        assertThrows(ForbiddenException.class, () -> resource.bulkAddRealmRoles(req));
+        verifyNoInteractions(kc);
+    }
+
     /* ==================== POST /users/{id}/promote-admin ==================== */
 
     @Test
-    void promoteToAdmin_alreadyAdmin_returns409AndDoesNotChangeRoles() {
+    void promoteToAdmin_alreadyAdmin_returns409() {
         KcAdminService kc = mock(KcAdminService.class);
         SecurityIdentity identity = mock(SecurityIdentity.class);
         AuthAdminResource resource = new AuthAdminResource(kc, identity);
 
         String userId = "admin-123";
 
-        when(kc.userHasRealmRole(userId, "admin")).thenReturn(true);
+        when(kc.promoteToAdmin(userId)).thenReturn(Optional.empty());
 
         Response res = resource.promoteToAdmin(userId);
 
@@ -470,50 +782,45 @@ public class AuthAdminResourceTest {
         Map<String, Object> body = (Map<String, Object>) res.getEntity();
         assertEquals("El usuario ya es admin", body.get("error"));
 
-        verify(kc).userHasRealmRole(userId, "admin");
-        verify(kc, never()).addRealmRoles(anyString(), anyList());
-        verify(kc, never()).removeRealmRoles(anyString(), anyList());
-        verify(kc, never()).findGroupByName(anyString());
+        verify(kc).promoteToAdmin(userId);
         verifyNoMoreInteractions(kc);
     }
 
     @Test
-    void promoteToAdmin_success_addsAdmin_removesCustomer_andRemovesFromCustomersGroup() {
+    void promoteToAdmin_success_returnsWhatChanged() {
         KcAdminService kc = mock(KcAdminService.class);
         SecurityIdentity identity = mock(SecurityIdentity.class);
         AuthAdminResource resource = new AuthAdminResource(kc, identity);
 
         String userId = "user-123";
-        String groupId = "group-999";
-
-        // not admin initially
-        when(kc.userHasRealmRole(userId, "admin")).thenReturn(false);
-        // user has "Customer" realm role
-        when(kc.userHasRealmRole(userId, "Customer")).thenReturn(true);
+        Promotion changes = new Promotion(List.of("admin"), List.of("Customer"), List.of("customers"));
 
-        // group "customers" exists
-        JsonObject groupJson = Json.createObjectBuilder()
-                .add("id", groupId)
-                .add("name", "customers")
-                .build();
-        when(kc.findGroupByName("customers")).thenReturn(Optional.of(groupJson));
-        when(kc.userInGroup(userId, groupId)).thenReturn(true);
+        // one orchestrated call instead of separate checks and writes
+        when(kc.promoteToAdmin(userId)).thenReturn(Optional.of(changes));
 
         Response res = resource.promoteToAdmin(userId);
 
-        assertEquals(Response.Status.NO_CONTENT.getStatusCode(), res.getStatus());
+        assertEquals(Response.Status.OK.getStatusCode(), res.getStatus());
+        assertSame(changes, res.getEntity());
+        verify(kc).promoteToAdmin(userId);
+        verifyNoMoreInteractions(kc);
+    }
 
-        // verify admin role added
-        verify(kc).addRealmRoles(userId, List.of("admin"));
-        // verify Customer role removed
-        verify(kc).removeRealmRoles(userId, List.of("Customer"));
-        // verify removed from customers group
-        verify(kc).removeUserFromGroup(userId, groupId);
+    /* ==================== POST /roles/cache/reload ==================== */
 
-        verify(kc).userHasRealmRole(userId, "admin");
-        verify(kc).userHasRealmRole(userId, "Customer");
-        verify(kc).findGroupByName("customers");
-        verify(kc).userInGroup(userId, groupId);
+    @Test
+    void reloadRealmRoles_ok_returnsLoadedCount() {
+        KcAdminService kc = mock(KcAdminService.class);
+        SecurityIdentity identity = mock(SecurityIdentity.class);
+        AuthAdminResource resource = new AuthAdminResource(kc, identity);
+
+        when(kc.reloadRealmRoles()).thenReturn(5);
+
+        Response res = resource.reloadRealmRoles();
+
+        assertEquals(Response.Status.OK.getStatusCode(), res.getStatus());
+        assertEquals(Map.of("roles", 5), res.getEntity());
+        verify(kc).reloadRealmRoles();
         verifyNoMoreInteractions(kc);
     }
 }
@@ -0,0 +1,136 @@
+package org.auth.resources;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.core.Response;
+import org.auth.service.KcAdminReactiveService;
+import org.auth.service.NewUser;
+import org.auth.service.Promotion;
+import org.auth.service.RoleChangeCoalescer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Pure unit tests for ReactiveAuthAdminResource.
+ * KcAdminReactiveService is mocked and every Uni is awaited in the test thread.
+ */
+public class ReactiveAuthAdminResourceTest {
+
+    @Test
+    void createUser_ok_singleCreateCallReturns201() {
+        KcAdminReactiveService kc = mock(KcAdminReactiveService.class);
+        ReactiveAuthAdminResource resource = new ReactiveAuthAdminResource(kc, mock(RoleChangeCoalescer.class));
+
+        AuthAdminResource.CreateUserReq req = new AuthAdminResource.CreateUserReq();
+        req.username = "nico";
+        req.email = "nico@example.com";
+        req.password = "S3cretPwd!";
+
+        NewUser expected = new NewUser("nico", "nico@example.com", "S3cretPwd!", true, true);
+        when(kc.createUser(expected)).thenReturn(Uni.createFrom().item("u1"));
+
+        Response res = resource.createUser(req).await().indefinitely();
+
+        assertEquals(Response.Status.CREATED.getStatusCode(), res.getStatus());
+        assertEquals(Map.of("id", "u1"), res.getEntity());
+        verify(kc).createUser(expected);
+        verifyNoMoreInteractions(kc);
+    }
+
+    @Test
+    void createUser_missingFields_throwsBadRequest() {
+        KcAdminReactiveService kc = mock(KcAdminReactiveService.class);
+        ReactiveAuthAdminResource resource = new ReactiveAuthAdminResource(kc, mock(RoleChangeCoalescer.class));
+
+        AuthAdminResource.CreateUserReq req = new AuthAdminResource.CreateUserReq();
+        req.username = "aleja";
+
+        assertThrows(BadRequestException.class, () -> resource.createUser(req));
+        verifyNoInteractions(kc);
+    }
+
+    @Test
+    void setEnabled_disableNonAdmin_logsOutUser() {
+        KcAdminReactiveService kc = mock(KcAdminReactiveService.class);
+        ReactiveAuthAdminResource resource = new ReactiveAuthAdminResource(kc, mock(RoleChangeCoalescer.class));
+
+        AuthAdminResource.EnabledReq req = new AuthAdminResource.EnabledReq();
+        req.enabled = false;
+
+        when(kc.userHasRealmRole("u1", "admin")).thenReturn(Uni.createFrom().item(false));
+        when(kc.setEnabled("u1", false)).thenReturn(Uni.createFrom().voidItem());
+        when(kc.logoutUser("u1")).thenReturn(Uni.createFrom().voidItem());
+
+        Response res = resource.setEnabled("u1", req).await().indefinitely();
+
+        assertEquals(Response.Status.NO_CONTENT.getStatusCode(), res.getStatus());
+        verify(kc).setEnabled("u1", false);
+        verify(kc).logoutUser("u1");
+    }
+
+    @Test
+    void addRealmRoles_targetIsAdmin_failsWithForbidden() {
+        KcAdminReactiveService kc = mock(KcAdminReactiveService.class);
+        RoleChangeCoalescer roleChanges = mock(RoleChangeCoalescer.class);
+        ReactiveAuthAdminResource resource = new ReactiveAuthAdminResource(kc, roleChanges);
+
+        AuthAdminResource.RolesReq req = new AuthAdminResource.RolesReq();
+        req.roles = List.of("Customer");
+
+        // checked by the coalescer, in the user's turn
+        when(roleChanges.add("admin-1", req.roles)).thenReturn(Uni.createFrom().failure(new ForbiddenException("Administrator roles cannot be changed.")));
+
+        Uni<Response> res = resource.addRealmRoles("admin-1", req);
+
+        assertThrows(ForbiddenException.class, () -> res.await().indefinitely());
+        verifyNoInteractions(kc);
+    }
+
+    @Test
+    void promoteToAdmin_returnsWhatChanged() {
+        KcAdminReactiveService kc = mock(KcAdminReactiveService.class);
+        ReactiveAuthAdminResource resource = new ReactiveAuthAdminResource(kc, mock(RoleChangeCoalescer.class));
+
+        Promotion changes = new Promotion(List.of("admin"), List.of("Customer"), List.of("customers"));
+        when(kc.promoteToAdmin("u1")).thenReturn(Uni.createFrom().item(Optional.of(changes)));
+
+        Response res = resource.promoteToAdmin("u1").await().indefinitely();
+
+        assertEquals(Response.Status.OK.getStatusCode(), res.getStatus());
+        assertSame(changes, res.getEntity());
+    }
+
+    @Test
+    void promoteToAdmin_partial_returns207() {
+        KcAdminReactiveService kc = mock(KcAdminReactiveService.class);
+        ReactiveAuthAdminResource resource = new ReactiveAuthAdminResource(kc, mock(RoleChangeCoalescer.class));
+
+        Promotion changes = new Promotion(List.of("admin"), List.of("Customer"), List.of(),
+                List.of(new Promotion.Failure("leaveGroup", "customers", 500, "Remove from group failed: 500")));
+        when(kc.promoteToAdmin("u1")).thenReturn(Uni.createFrom().item(Optional.of(changes)));
+
+        Response res = resource.promoteToAdmin("u1").await().indefinitely();
+
+        assertEquals(207, res.getStatus());
+        assertSame(changes, res.getEntity());
+    }
+
+    @Test
+    void promoteToAdmin_alreadyAdmin_returns409() {
+        KcAdminReactiveService kc = mock(KcAdminReactiveService.class);
+        ReactiveAuthAdminResource resource = new ReactiveAuthAdminResource(kc, mock(RoleChangeCoalescer.class));
+
+        when(kc.promoteToAdmin("u1")).thenReturn(Uni.createFrom().item(Optional.empty()));
+
+        Response res = resource.promoteToAdmin("u1").await().indefinitely();
+
+        assertEquals(Response.Status.CONFLICT.getStatusCode(), res.getStatus());
+    }
+}
@@ -0,0 +1,88 @@
+package org.auth.resources;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.interceptor.InvocationContext;
+import jakarta.ws.rs.PathParam;
+import org.auth.service.UserMutations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for UserMutationInterceptor with a mocked invocation context.
+ */
+public class UserMutationInterceptorTest {
+
+    private UserMutations mutations;
+    private UserMutationInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        mutations = new UserMutations();
+        interceptor = new UserMutationInterceptor();
+        interceptor.mutations = mutations;
+    }
+
+    @SuppressWarnings("unused")
+    static class Endpoints {
+        Uni<String> reactive(@PathParam("id") String userId) {
+            return null;
+        }
+
+        String blocking(@PathParam("id") String userId) {
+            return null;
+        }
+    }
+
+    private static InvocationContext invocation(String method, String userId, Object result) throws Exception {
+        InvocationContext ctx = mock(InvocationContext.class);
+        when(ctx.getMethod()).thenReturn(Endpoints.class.getDeclaredMethod(method, String.class));
+        when(ctx.getParameters()).thenReturn(new Object[]{userId});
+        when(ctx.proceed()).thenReturn(result);
+        return ctx;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void uniEndpoint_isInvokedAtOnce_andSubscribedInTheUsersTurn() throws Exception {
+        CompletableFuture<Void> previous = new CompletableFuture<>();
+        mutations.serialized("u1", () -> Uni.createFrom().completionStage(previous)).subscribe().with(v -> { });
+        AtomicBoolean subscribed = new AtomicBoolean();
+        InvocationContext ctx = invocation("reactive", "u1",
+                Uni.createFrom().item("done").onSubscription().invoke(() -> subscribed.set(true)));
+
+        Uni<String> result = (Uni<String>) interceptor.inUserTurn(ctx);
+        CompletableFuture<String> answer = result.subscribeAsCompletionStage();
+
+        verify(ctx, times(1)).proceed();
+        assertFalse(subscribed.get());
+        previous.complete(null);
+        assertEquals("done", answer.get(5, TimeUnit.SECONDS));
+        assertTrue(subscribed.get());
+    }
+
+    @Test
+    void blockingEndpoint_runsInTheUsersTurn() throws Exception {
+        InvocationContext ctx = invocation("blocking", "u1", "ok");
+
+        assertEquals("ok", interceptor.inUserTurn(ctx));
+        assertEquals(1, mutations.stats().mutations());
+        assertEquals(0, mutations.stats().users());
+    }
+
+    @Test
+    void checkedFailure_isRethrownAsIs() throws Exception {
+        InvocationContext ctx = invocation("blocking", "u1", null);
+        when(ctx.proceed()).thenThrow(new IOException("stream closed"));
+
+        assertThrows(IOException.class, () -> interceptor.inUserTurn(ctx));
+        assertEquals(0, mutations.stats().users()); // the turn was released
+    }
+}
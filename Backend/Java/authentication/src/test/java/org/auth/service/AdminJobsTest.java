@@ -0,0 +1,126 @@
+package org.auth.service;
+
+import org.auth.service.AdminJobs.State;
+import org.auth.service.AdminJobs.Status;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AdminJobs (counts, progress stream, cancellation and the bounded queue).
+ */
+public class AdminJobsTest {
+
+    private AdminJobs jobs;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        jobs = new AdminJobs();
+        jobs.kc = mock(KcAdminService.class);
+        jobs.threads = 1;
+        jobs.queueSize = 1;
+        jobs.retention = Duration.ofHours(1);
+        jobs.progressInterval = Duration.ofMillis(10);
+        jobs.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        jobs.stop();
+    }
+
+    private Status awaitFinished(String id) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            Status s = jobs.status(id).orElseThrow();
+            if (s.state().finished()) return s;
+            Thread.sleep(10);
+        }
+        fail("job did not finish");
+        return null;
+    }
+
+    /** Reports one result, then blocks until the test releases it (or the job is interrupted) */
+    private AdminJobs.Work blocking(CountDownLatch started) {
+        return (kc, progress) -> {
+            progress.accept(BatchItemResult.ok(0, "u1"));
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            progress.accept(BatchItemResult.ok(1, "u2"));
+        };
+    }
+
+    @Test
+    void submit_runsWork_andCountsProcessedFailedRemaining() throws InterruptedException {
+        Status queued = jobs.submit("SET_ENABLED", 3, (kc, progress) -> {
+            progress.accept(BatchItemResult.ok(0, "u1"));
+            progress.accept(new BatchItemResult(1, "boss", 403, "You cannot enable/disable an administrator."));
+            progress.accept(BatchItemResult.ok(2, "u3"));
+        });
+
+        Status done = awaitFinished(queued.id());
+
+        assertEquals(State.COMPLETED, done.state());
+        assertEquals(3, done.processed());
+        assertEquals(1, done.failed());
+        assertEquals(0, done.remaining());
+        assertNotNull(done.finishedAt());
+    }
+
+    @Test
+    void progress_emitsSnapshotsAndEndsWithFinishedState() {
+        Status queued = jobs.submit("ADD_REALM_ROLES", null, (kc, progress) -> progress.accept(BatchItemResult.ok(0, "u1")));
+
+        List<Status> events = jobs.progress(queued.id()).collect().asList().await().atMost(Duration.ofSeconds(5));
+
+        Status last = events.get(events.size() - 1);
+        assertEquals(State.COMPLETED, last.state());
+        assertNull(last.remaining());
+        assertTrue(events.subList(0, events.size() - 1).stream().noneMatch(s -> s.state().finished()));
+    }
+
+    @Test
+    void cancel_runningJob_interruptsIt() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Status queued = jobs.submit("SET_ENABLED", 2, blocking(started));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        jobs.cancel(queued.id());
+        Status done = awaitFinished(queued.id());
+
+        assertEquals(State.CANCELLED, done.state());
+        assertEquals(1, done.processed());
+        assertEquals(1, done.remaining());
+    }
+
+    @Test
+    void cancel_queuedJob_neverRuns_andFullQueueRejects() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        jobs.submit("SET_ENABLED", 2, blocking(started));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        AdminJobs.Work never = mock(AdminJobs.Work.class);
+        Status waiting = jobs.submit("SET_ENABLED", 1, never);
+
+        assertThrows(RejectedExecutionException.class, () -> jobs.submit("SET_ENABLED", 1, never));
+        assertEquals(State.CANCELLED, jobs.cancel(waiting.id()).orElseThrow().state());
+
+        release.countDown();
+        Thread.sleep(50);
+        verifyNoInteractions(never);
+        assertTrue(jobs.cancel("unknown").isEmpty());
+    }
+}
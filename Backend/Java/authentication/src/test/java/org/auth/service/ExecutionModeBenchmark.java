@@ -0,0 +1,185 @@
+package org.auth.service;
+
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the worker-pool and virtual-thread execution modes of the blocking admin path.
+ *
+ * The application runs as in production (typed REST clients, connection pool, token cache, limiter); only
+ * Keycloak is replaced by a local Vert.x HTTP stub that answers after a fixed latency without holding a thread.
+ * Each simulated admin request runs {@link KcAdminService#getUser(String)} (user + realm roles, two HTTP calls)
+ * on either a fixed thread pool or one virtual thread per request, and the run reports throughput, p50 and p99.
+ * Not a unit test: only runs with {@code -Dbench.enabled=true}, i.e. {@code ./gradlew adminBenchmark}.
+ *
+ * Tunables (system properties): bench.requests, bench.concurrency, bench.latencyMs, bench.workerThreads,
+ * bench.poolSize (HTTP connections to Keycloak).
+ */
+@QuarkusTest
+@TestProfile(ExecutionModeBenchmark.StubbedKeycloak.class)
+@EnabledIfSystemProperty(named = "bench.enabled", matches = "true")
+public class ExecutionModeBenchmark {
+
+    @Inject
+    KcAdminService kc;
+
+    @Test
+    void workerPoolVersusVirtualThreads() throws Exception {
+        int requests = Integer.getInteger("bench.requests", 2000);
+        int concurrency = Integer.getInteger("bench.concurrency", 200);
+        int workerThreads = Integer.getInteger("bench.workerThreads", 50);
+
+        assertEquals("warmup", kc.getUser("warmup").getString("id"));
+
+        System.out.printf("requests=%d concurrency=%d keycloakLatency=%dms workerThreads=%d poolSize=%s%n",
+                requests, concurrency, KeycloakStub.latencyMs(), workerThreads, StubbedKeycloak.poolSize());
+
+        try (ExecutorService workers = Executors.newFixedThreadPool(workerThreads)) {
+            run("worker-pool", workers, requests, concurrency);
+        }
+        try (ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor()) {
+            run("virtual-threads", virtual, requests, concurrency);
+        }
+    }
+
+    private void run(String mode, ExecutorService executor, int requests, int concurrency) throws Exception {
+        long[] latencies = new long[requests];
+        Semaphore inFlight = new Semaphore(concurrency);
+        Future<?>[] done = new Future<?>[requests];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int n = i;
+            long submitted = System.nanoTime();
+            done[i] = executor.submit(() -> {
+                try {
+                    kc.getUser("u" + n);
+                } finally {
+                    latencies[n] = System.nanoTime() - submitted;
+                    inFlight.release();
+                }
+            });
+        }
+        for (Future<?> f : done) f.get();
+        Duration wall = Duration.ofNanos(System.nanoTime() - start);
+
+        Arrays.sort(latencies);
+        System.out.printf("%-16s throughput=%8.1f req/s  p50=%6.1f ms  p99=%6.1f ms%n",
+                mode,
+                requests / (wall.toNanos() / 1e9),
+                latencies[requests / 2] / 1e6,
+                latencies[(int) (requests * 0.99) - 1] / 1e6);
+    }
+
+    /** Production settings, with the stub as Keycloak and nothing that would hide the execution mode */
+    public static class StubbedKeycloak implements QuarkusTestProfile {
+
+        static String poolSize() {
+            return System.getProperty("bench.poolSize", "50");
+        }
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.ofEntries(
+                    Map.entry("quarkus.oidc.tenant-enabled", "false"),
+                    Map.entry("quarkus.oidc.client-id", "bench"),
+                    Map.entry("quarkus.oidc.application-type", "service"),
+                    Map.entry("quarkus.oidc.roles.source", "accesstoken"),
+                    Map.entry("quarkus.oidc.roles.role-claim-path", "realm_access/roles"),
+                    Map.entry("quarkus.oidc.token.audience", "bench"),
+                    Map.entry("quarkus.http.auth.permission.public.paths", "/q/*"),
+                    Map.entry("quarkus.http.cors.enabled", "false"),
+                    Map.entry("quarkus.http.cors.methods", "GET"),
+                    Map.entry("keycloak.admin.realm", "bench"),
+                    Map.entry("keycloak.admin.client-id", "bench"),
+                    Map.entry("keycloak.admin.client-secret", "bench"),
+                    Map.entry("quarkus.rest-client.connection-pool-size", poolSize()),
+                    // zero TTL: every request pays both Keycloak round trips, so only the execution mode is measured
+                    Map.entry("keycloak.admin.cache.user-roles.ttl", "0s"),
+                    // far above the benchmark's concurrency: the limiter must not shape the results
+                    Map.entry("keycloak.admin.limiter.initial-limit", "100000"),
+                    Map.entry("keycloak.admin.limiter.min-limit", "100000"),
+                    Map.entry("keycloak.admin.limiter.max-limit", "100000"),
+                    Map.entry("keycloak.admin.limiter.latency-threshold", "1h"));
+        }
+
+        @Override
+        public List<TestResourceEntry> testResources() {
+            return List.of(new TestResourceEntry(KeycloakStub.class));
+        }
+    }
+
+    /** Token endpoint, user and composite role mapping of a minimal Keycloak, answered after {@code bench.latencyMs} */
+    public static class KeycloakStub implements QuarkusTestResourceLifecycleManager {
+
+        private static final Pattern USER = Pattern.compile("/admin/realms/bench/users/([^/]+)");
+        private static final Pattern ROLES = Pattern.compile("/admin/realms/bench/users/[^/]+/role-mappings/realm/composite");
+        private static final Set<String> STARTUP = Set.of("/admin/realms/bench/roles", "/admin/realms/bench/groups", "/admin/realms/bench/users");
+
+        private Vertx vertx;
+
+        static int latencyMs() {
+            return Integer.getInteger("bench.latencyMs", 50);
+        }
+
+        @Override
+        public Map<String, String> start() {
+            vertx = Vertx.vertx();
+            HttpServer server = vertx.createHttpServer()
+                    .requestHandler(this::answer)
+                    .listen(0, "localhost")
+                    .toCompletionStage().toCompletableFuture().join();
+            return Map.of("keycloak.admin.url", "http://localhost:" + server.actualPort());
+        }
+
+        @Override
+        public void stop() {
+            if (vertx != null) vertx.close().toCompletionStage().toCompletableFuture().orTimeout(5, TimeUnit.SECONDS).join();
+        }
+
+        private void answer(HttpServerRequest req) {
+            String path = req.path();
+            String body;
+            Matcher user = USER.matcher(path);
+            if (path.equals("/realms/bench/protocol/openid-connect/token")) {
+                body = "{\"access_token\":\"bench\",\"expires_in\":3600}";
+            } else if (ROLES.matcher(path).matches()) {
+                body = "[{\"name\":\"Customer\"}]";
+            } else if (user.matches()) {
+                body = "{\"id\":\"" + user.group(1) + "\",\"enabled\":true}";
+            } else if (STARTUP.contains(path)) {
+                body = "[]"; // role and group preload, role-mapping probe: an empty realm
+            } else {
+                // fails the call (and with it the run): the benchmark must measure exactly the calls it describes
+                throw new AssertionError("Unexpected Keycloak call: " + req.method() + " " + req.uri());
+            }
+            Runnable reply = () -> req.response().putHeader("Content-Type", "application/json").end(body);
+            if (latencyMs() == 0) reply.run();
+            else vertx.setTimer(latencyMs(), id -> reply.run());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.auth.service;
+
+import io.smallrye.mutiny.Uni;
+import org.auth.client.GroupRepresentation;
+import org.auth.client.KeycloakAdminApi;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for GroupCache with a mocked Keycloak client.
+ */
+public class GroupCacheTest {
+
+    private KeycloakAdminApi api;
+    private GroupCache cache;
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        api = mock(KeycloakAdminApi.class);
+        KcTokenManager tokens = mock(KcTokenManager.class);
+        when(tokens.token()).thenReturn(CompletableFuture.completedFuture("t"));
+
+        now = Instant.parse("2025-01-01T00:00:00Z");
+        cache = new GroupCache();
+        cache.api = api;
+        cache.tokens = tokens;
+        cache.limiter = KcAdminLimiter.of(64, 4, 64, 1000, Duration.ofSeconds(5));
+        cache.ttl = Duration.ofMinutes(10);
+        cache.membersTtl = Duration.ofSeconds(30);
+        cache.membersMaxSize = 100;
+        cache.clock = Clock.fixed(now, ZoneOffset.UTC);
+    }
+
+    private static GroupRepresentation group(String id, String name) {
+        GroupRepresentation g = new GroupRepresentation();
+        g.id = id;
+        g.name = name;
+        return g;
+    }
+
+    @Test
+    void reload_walksInlineAndPagedSubgroups() {
+        GroupRepresentation customers = group("g1", "customers");
+        customers.subGroups = List.of(group("g2", "vip"));
+        GroupRepresentation staff = group("g3", "staff");
+        staff.subGroupCount = 1L;
+        when(api.listGroups("Bearer t", null, null)).thenReturn(Uni.createFrom().item(List.of(customers, staff)));
+        when(api.getGroupChildren("Bearer t", "g3", 0, 1)).thenReturn(Uni.createFrom().item(List.of(group("g4", "cashiers"))));
+
+        assertEquals(4, cache.reload().await().indefinitely());
+
+        assertEquals("g1", cache.byName("Customers").orElseThrow().id);
+        assertEquals("g2", cache.byPath("/customers/vip").orElseThrow().id);
+        assertEquals("g4", cache.byPath("/Staff/cashiers").orElseThrow().id);
+        assertTrue(cache.byName("vip").isEmpty());
+    }
+
+    @Test
+    void reload_nameClash_byNameResolvesTopLevelGroupOnly() {
+        GroupRepresentation vip = group("g1", "vip");
+        vip.subGroups = List.of(group("g2", "customers"));
+        when(api.listGroups("Bearer t", null, null)).thenReturn(Uni.createFrom().item(List.of(vip, group("g3", "customers"))));
+
+        cache.reload().await().indefinitely();
+
+        assertEquals("g3", cache.byName("customers").orElseThrow().id);
+        assertEquals("g2", cache.byPath("/vip/customers").orElseThrow().id);
+    }
+
+    @Test
+    void byName_afterTtl_isEmpty() {
+        cache.put(group("g1", "customers"));
+        cache.clock = Clock.fixed(now.plus(Duration.ofMinutes(11)), ZoneOffset.UTC);
+
+        assertTrue(cache.byName("customers").isEmpty());
+    }
+
+    @Test
+    void left_removesGroupFromCachedMemberships() {
+        cache.putMemberships("u1", List.of(group("g1", "customers"), group("g2", "vip")));
+
+        cache.left("u1", "g1");
+
+        assertEquals(Optional.of(Set.of("g2")), cache.memberships("u1"));
+    }
+}
@@ -0,0 +1,106 @@
+package org.auth.service;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the adaptive Keycloak call limiter.
+ */
+public class KcAdminLimiterTest {
+
+    /** A call that is only answered when the test completes {@code answer}, counting subscriptions */
+    private static Uni<String> pending(CompletableFuture<String> answer, AtomicInteger sent) {
+        return Uni.createFrom().completionStage(() -> {
+            sent.incrementAndGet();
+            return answer;
+        });
+    }
+
+    @Test
+    void aboveLimit_callsWaitInOrder_thenFullQueueIsRejected() throws Exception {
+        KcAdminLimiter limiter = KcAdminLimiter.of(1, 1, 1, 1, Duration.ofSeconds(5));
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<String> first = new CompletableFuture<>();
+
+        CompletableFuture<String> a = limiter.limit(pending(first, sent)).subscribeAsCompletionStage();
+        CompletableFuture<String> b = limiter.limit(pending(CompletableFuture.completedFuture("b"), sent)).subscribeAsCompletionStage();
+
+        assertEquals(1, sent.get());
+        assertEquals(new KcAdminLimiter.Stats(1, 1, 1, 1, 0), limiter.stats());
+        KcOverloadException e = assertThrows(KcOverloadException.class,
+                () -> limiter.limit(Uni.createFrom().item("c")).await().indefinitely());
+        assertEquals(503, e.status());
+
+        first.complete("a");
+
+        assertEquals("a", a.get(5, TimeUnit.SECONDS));
+        assertEquals("b", b.get(5, TimeUnit.SECONDS));
+        assertEquals(new KcAdminLimiter.Stats(1, 0, 0, 2, 1), limiter.stats());
+    }
+
+    @Test
+    void cancelledWhileQueued_givesUpItsPlace() {
+        KcAdminLimiter limiter = KcAdminLimiter.of(1, 1, 1, 5, Duration.ofSeconds(5));
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<String> first = new CompletableFuture<>();
+        limiter.limit(pending(first, sent)).subscribe().with(v -> { });
+
+        Cancellable queued = limiter.limit(pending(new CompletableFuture<>(), sent)).subscribe().with(v -> { });
+        queued.cancel();
+        first.complete("a");
+
+        assertEquals(1, sent.get());
+        assertEquals(0, limiter.stats().queued());
+        assertEquals(0, limiter.stats().inFlight());
+    }
+
+    @Test
+    void cancelledWhileBeingHandedASlot_stillGivesTheSlotBack() {
+        // starts at 1 and grows to 2 on the first fast answer, so that answer hands out two slots at once
+        KcAdminLimiter limiter = KcAdminLimiter.of(1, 1, 2, 5, Duration.ofSeconds(5));
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<String> first = new CompletableFuture<>();
+        limiter.limit(pending(first, sent)).subscribe().with(v -> { });
+
+        AtomicReference<Cancellable> third = new AtomicReference<>();
+        // the second call starts while the slots are handed out and cancels the third, whose slot is already counted
+        limiter.limit(Uni.createFrom().item(() -> {
+            third.get().cancel();
+            return "b";
+        })).subscribe().with(v -> { });
+        third.set(limiter.limit(pending(new CompletableFuture<>(), sent)).subscribe().with(v -> { }));
+        first.complete("a");
+
+        assertEquals(1, sent.get());
+        assertEquals(0, limiter.stats().queued());
+        assertEquals(0, limiter.stats().inFlight());
+    }
+
+    @Test
+    void fastAnswersRaiseTheLimit_overloadLowersIt() {
+        KcAdminLimiter limiter = KcAdminLimiter.of(4, 2, 8, 10, Duration.ofSeconds(5));
+        for (int i = 0; i < 20; i++) limiter.limit(Uni.createFrom().item("ok")).await().indefinitely();
+        int raised = limiter.stats().limit();
+        assertTrue(raised > 4, "limit " + raised);
+
+        assertThrows(WebApplicationException.class, () -> limiter.limit(
+                Uni.createFrom().<String>failure(new WebApplicationException(503))).await().indefinitely());
+        assertTrue(limiter.stats().limit() < raised);
+
+        // an ordinary 404 is an answer, not a sign of overload
+        int before = limiter.stats().limit();
+        assertThrows(WebApplicationException.class, () -> limiter.limit(
+                Uni.createFrom().<String>failure(new WebApplicationException(404))).await().indefinitely());
+        assertTrue(limiter.stats().limit() >= before);
+    }
+}
@@ -0,0 +1,478 @@
+package org.auth.service;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
+import org.auth.client.GroupRepresentation;
+import org.auth.client.KeycloakAdminApi;
+import org.auth.client.RoleRepresentation;
+import org.auth.client.UserRepresentation;
+import org.jboss.resteasy.reactive.RestResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.ws.rs.WebApplicationException;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the concurrent paths of KcAdminReactiveService (getUser fan-out, user creation).
+ */
+public class KcAdminReactiveServiceTest {
+
+    private KeycloakAdminApi api;
+    private KcAdminReactiveService service;
+
+    @BeforeEach
+    void setUp() {
+        api = mock(KeycloakAdminApi.class);
+        KcTokenManager tokens = mock(KcTokenManager.class);
+        when(tokens.token()).thenReturn(CompletableFuture.completedFuture("t"));
+
+        service = new KcAdminReactiveService();
+        service.api = api;
+        service.tokens = tokens;
+        service.limiter = KcAdminLimiter.of(64, 4, 64, 1000, Duration.ofSeconds(5));
+        service.userRoles = new UserRoleCache();
+        service.userRoles.ttl = Duration.ofSeconds(30);
+        service.userRoles.maxSize = 10;
+        service.endpoint = new RoleMappingEndpoint();
+        service.endpoint.interval = Duration.ofHours(1);
+        service.batchConcurrency = 2;
+        service.mutations = new UserMutations();
+        service.enableWriteConcurrency = 2;
+        service.logoutConcurrency = 2;
+        service.inlineCredentials = true;
+        service.inlineGroups = true;
+        service.roleCache = mock(RealmRoleCache.class);
+        service.groups = new GroupCache();
+        service.groups.ttl = Duration.ofMinutes(10);
+        service.groups.limiter = service.limiter;
+        service.users = new UserCache();
+        service.users.ttl = Duration.ofSeconds(30);
+        service.users.maxSize = 10;
+        service.lookupConcurrency = 2;
+        service.largeRoleTtl = Duration.ofMinutes(10);
+    }
+
+    private void stubCreate(String id) {
+        when(api.createUser(eq("Bearer t"), any()))
+                .thenReturn(Uni.createFrom().item(RestResponse.<Void>created(URI.create("http://kc/users/" + id))));
+    }
+
+    private static Uni<JsonObject> delayedNotFound() {
+        return Uni.createFrom().voidItem()
+                .onItem().delayIt().by(Duration.ofMillis(50))
+                .onItem().transformToUni(v -> Uni.createFrom().failure(new WebApplicationException(404)));
+    }
+
+    @Test
+    void getUser_mergesRolesIntoUser() {
+        RoleRepresentation customer = new RoleRepresentation();
+        customer.name = "Customer";
+        when(api.getUser("Bearer t", "u1")).thenReturn(Uni.createFrom().item(Json.createObjectBuilder().add("id", "u1").build()));
+        when(api.getEffectiveRealmRoles("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of(customer)));
+
+        JsonObject user = service.getUser("u1").await().indefinitely();
+
+        assertEquals("u1", user.getString("id"));
+        assertEquals("Customer", user.getJsonArray("realmRoles").getString(0));
+    }
+
+    @Test
+    void getUser_userNotFound_cancelsRoleFetch() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        // the 404 arrives while the role fetch is still in flight
+        when(api.getUser("Bearer t", "gone")).thenReturn(delayedNotFound());
+        when(api.getEffectiveRealmRoles("Bearer t", "gone")).thenReturn(Uni.createFrom().<List<RoleRepresentation>>nothing()
+                .onCancellation().invoke(() -> cancelled.set(true)));
+
+        KcCallException e = assertThrows(KcCallException.class, () -> service.getUser("gone").await().indefinitely());
+
+        assertEquals(404, e.status());
+        assertTrue(e.getMessage().startsWith("Get user failed"));
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void getUser_rolesNotFoundFirst_reportsUserFailure() {
+        // the user fetch answers after the role fetches
+        when(api.getUser("Bearer t", "gone")).thenReturn(delayedNotFound());
+        when(api.getEffectiveRealmRoles("Bearer t", "gone")).thenReturn(Uni.createFrom().failure(new WebApplicationException(404)));
+        when(api.getRealmRoleMappings("Bearer t", "gone")).thenReturn(Uni.createFrom().failure(new WebApplicationException(404)));
+
+        KcCallException e = assertThrows(KcCallException.class, () -> service.getUser("gone").await().indefinitely());
+
+        assertTrue(e.getMessage().startsWith("Get user failed"));
+    }
+
+    @Test
+    void createUsers_boundsConcurrency_andReportsEachItem() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(api.createUser(eq("Bearer t"), any())).thenAnswer(inv -> {
+            String username = inv.<UserRepresentation>getArgument(1).username;
+            return Uni.createFrom().voidItem()
+                    .onSubscription().invoke(() -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    .onItem().delayIt().by(Duration.ofMillis(20))
+                    .onTermination().invoke(inFlight::decrementAndGet)
+                    .onItem().transformToUni(v -> "taken".equals(username)
+                            ? Uni.createFrom().<RestResponse<Void>>failure(new WebApplicationException(409))
+                            : Uni.createFrom().item(RestResponse.<Void>created(URI.create("http://kc/users/" + username + "-id"))));
+        });
+
+        List<NewUser> users = List.of(
+                new NewUser("a", "a@x", "p", true, true),
+                new NewUser("taken", "t@x", "p", true, true),
+                new NewUser("b", "b@x", null, true, true),
+                new NewUser("c", "c@x", "p", true, true),
+                new NewUser("d", "d@x", "p", true, true));
+
+        List<BatchItemResult> results = service.createUsers(users).await().indefinitely();
+
+        assertEquals(5, results.size());
+        assertEquals("a-id", results.get(0).id());
+        assertEquals(409, results.get(1).status());
+        assertEquals(400, results.get(2).status());
+        assertEquals("d-id", results.get(4).id());
+        assertTrue(maxInFlight.get() <= 2);
+        // passwords go inline with each create; the invalid item never reaches Keycloak
+        verify(api, times(4)).createUser(eq("Bearer t"), any());
+        verify(api, never()).resetPassword(anyString(), anyString(), any());
+    }
+
+    @Test
+    void createUser_sendsPasswordAndGroupsInline_rolesFollowUp() {
+        RoleRepresentation customer = new RoleRepresentation();
+        customer.name = "Customer";
+        stubCreate("u1");
+        when(service.roleCache.getAllAsync(List.of("Customer"))).thenReturn(Uni.createFrom().item(List.of(customer)));
+        when(api.addRealmRoleMappings("Bearer t", "u1", List.of(customer))).thenReturn(Uni.createFrom().voidItem());
+
+        String id = service.createUser(new NewUser("nico", "n@x", "p", true, true, List.of("Customer"), List.of("customers")))
+                .await().indefinitely();
+
+        assertEquals("u1", id);
+        ArgumentCaptor<UserRepresentation> sent = ArgumentCaptor.forClass(UserRepresentation.class);
+        verify(api).createUser(eq("Bearer t"), sent.capture());
+        assertEquals("p", sent.getValue().credentials.get(0).value);
+        assertEquals(List.of("/customers"), sent.getValue().groups);
+        verify(api).addRealmRoleMappings("Bearer t", "u1", List.of(customer));
+        verify(api, never()).resetPassword(anyString(), anyString(), any());
+        verify(api, never()).joinGroup(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void createUser_inlineDisabled_fallsBackToFollowUpCalls() {
+        service.inlineCredentials = false;
+        service.inlineGroups = false;
+        GroupRepresentation customers = new GroupRepresentation();
+        customers.id = "g1";
+        customers.name = "customers";
+        service.groups.put(customers);
+        stubCreate("u1");
+        when(api.resetPassword(eq("Bearer t"), eq("u1"), any())).thenReturn(Uni.createFrom().voidItem());
+        when(api.joinGroup("Bearer t", "u1", "g1")).thenReturn(Uni.createFrom().voidItem());
+
+        service.createUser(new NewUser("nico", "n@x", "p", true, true, List.of(), List.of("/customers")))
+                .await().indefinitely();
+
+        ArgumentCaptor<UserRepresentation> sent = ArgumentCaptor.forClass(UserRepresentation.class);
+        verify(api).createUser(eq("Bearer t"), sent.capture());
+        assertNull(sent.getValue().credentials);
+        assertNull(sent.getValue().groups);
+        verify(api).resetPassword(eq("Bearer t"), eq("u1"), any());
+        verify(api).joinGroup("Bearer t", "u1", "g1");
+    }
+
+    @Test
+    void createUser_followUpJoin_resolvesSubgroupByFullPath() {
+        service.inlineGroups = false;
+        GroupRepresentation customers = new GroupRepresentation();
+        customers.id = "g1";
+        customers.name = "vip";
+        service.groups.put(customers); // a top-level "vip" must not be taken for /customers/vip
+        GroupRepresentation vip = new GroupRepresentation();
+        vip.id = "g2";
+        vip.name = "vip";
+        stubCreate("u1");
+        when(api.getGroupByPath("Bearer t", "customers/vip")).thenReturn(Uni.createFrom().item(vip));
+        when(api.joinGroup("Bearer t", "u1", "g2")).thenReturn(Uni.createFrom().voidItem());
+
+        service.createUser(new NewUser("nico", "n@x", "p", true, true, List.of(), List.of("/customers/vip")))
+                .await().indefinitely();
+
+        verify(api).joinGroup("Bearer t", "u1", "g2");
+        verify(api, never()).searchGroups(anyString(), anyString());
+        assertEquals("g2", service.groups.byPath("/customers/vip").orElseThrow().id);
+    }
+
+    private static RoleRepresentation role(String name) {
+        RoleRepresentation r = new RoleRepresentation();
+        r.name = name;
+        r.composite = false;
+        return r;
+    }
+
+    @Test
+    void bulkRealmRoles_resolvesRolesOnce_skipsAdmins_keepsOrder() {
+        RoleRepresentation client = role("client");
+        when(service.roleCache.getAllAsync(List.of("client"))).thenReturn(Uni.createFrom().item(List.of(client)));
+        when(api.getEffectiveRealmRoles("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of(role("Customer"))));
+        when(api.getEffectiveRealmRoles("Bearer t", "boss")).thenReturn(Uni.createFrom().item(List.of(role("admin"))));
+        when(api.getEffectiveRealmRoles("Bearer t", "gone")).thenReturn(Uni.createFrom().item(List.of()));
+        when(api.addRealmRoleMappings("Bearer t", "u1", List.of(client))).thenReturn(Uni.createFrom().voidItem());
+        when(api.addRealmRoleMappings("Bearer t", "gone", List.of(client)))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException(404)));
+
+        List<BatchItemResult> results = service.bulkRealmRoles(Multi.createFrom().items("u1", "boss", "gone"), List.of("client"), true)
+                .await().indefinitely();
+
+        assertEquals(List.of("u1", "boss", "gone"), results.stream().map(BatchItemResult::id).toList());
+        assertTrue(results.get(0).succeeded());
+        assertEquals(403, results.get(1).status());
+        assertEquals(404, results.get(2).status());
+        verify(service.roleCache, times(1)).getAllAsync(List.of("client"));
+        verify(api, never()).addRealmRoleMappings(eq("Bearer t"), eq("boss"), any());
+    }
+
+    @Test
+    void matchingUserIds_pagesUntilShortPage() {
+        service.searchPageSize = 2;
+        when(api.listUsers("Bearer t", "cine", 0, 2)).thenReturn(Uni.createFrom().item(Buffer.buffer("[{\"id\":\"a\"},{\"id\":\"b\"}]")));
+        when(api.listUsers("Bearer t", "cine", 2, 2)).thenReturn(Uni.createFrom().item(Buffer.buffer("[{\"id\":\"c\"}]")));
+
+        List<String> ids = service.matchingUserIds("cine").collect().asList().await().indefinitely();
+
+        assertEquals(List.of("a", "b", "c"), ids);
+    }
+
+    @Test
+    void bulkSetEnabled_disable_skipsAdmins_writesThenLogsOut() {
+        when(api.getEffectiveRealmRoles(eq("Bearer t"), anyString())).thenReturn(Uni.createFrom().item(List.of(role("Customer"))));
+        when(api.getEffectiveRealmRoles("Bearer t", "boss")).thenReturn(Uni.createFrom().item(List.of(role("admin"))));
+        when(api.updateUser(eq("Bearer t"), anyString(), any())).thenReturn(Uni.createFrom().voidItem());
+        when(api.updateUser(eq("Bearer t"), eq("gone"), any())).thenReturn(Uni.createFrom().failure(new WebApplicationException(404)));
+        when(api.logout(eq("Bearer t"), anyString())).thenReturn(Uni.createFrom().voidItem());
+        when(api.logout("Bearer t", "u2")).thenReturn(Uni.createFrom().failure(new WebApplicationException(500)));
+
+        List<BatchItemResult> results = service.bulkSetEnabled(Multi.createFrom().items("u1", "boss", "gone", "u2"), false)
+                .collect().asList().await().indefinitely();
+
+        assertEquals(4, results.size());
+        BatchItemResult[] byIndex = new BatchItemResult[4];
+        results.forEach(r -> byIndex[r.index()] = r);
+        assertTrue(byIndex[0].succeeded());
+        assertEquals(403, byIndex[1].status());
+        assertEquals(404, byIndex[2].status());
+        // disabled, but the sessions could not be revoked
+        assertEquals("u2", byIndex[3].id());
+        assertEquals(500, byIndex[3].status());
+        verify(api, never()).updateUser(eq("Bearer t"), eq("boss"), any());
+        verify(api).logout("Bearer t", "u1");
+        verify(api, never()).logout("Bearer t", "gone");
+    }
+
+    @Test
+    void bulkSetEnabled_checksAndWritesEachUserInTheirTurn() throws Exception {
+        CompletableFuture<Void> promotion = new CompletableFuture<>();
+        service.mutations.serialized("u1", () -> Uni.createFrom().completionStage(promotion)).subscribe().with(v -> { });
+        when(api.getEffectiveRealmRoles(eq("Bearer t"), anyString())).thenReturn(Uni.createFrom().item(List.of()));
+        when(api.updateUser(eq("Bearer t"), anyString(), any())).thenReturn(Uni.createFrom().voidItem());
+
+        CompletableFuture<List<BatchItemResult>> results = service.bulkSetEnabled(Multi.createFrom().items("u1", "u2"), true)
+                .collect().asList().subscribeAsCompletionStage();
+
+        // u2 goes ahead; u1 is not even checked while another change to it is running
+        verify(api, timeout(5000)).updateUser(eq("Bearer t"), eq("u2"), any());
+        verify(api, never()).getEffectiveRealmRoles("Bearer t", "u1");
+        promotion.complete(null);
+        assertEquals(2, results.get(5, TimeUnit.SECONDS).size());
+        verify(api).updateUser(eq("Bearer t"), eq("u1"), any());
+    }
+
+    @Test
+    void bulkSetEnabled_enable_doesNotLogOut() {
+        when(api.getEffectiveRealmRoles(eq("Bearer t"), anyString())).thenReturn(Uni.createFrom().item(List.of()));
+        when(api.updateUser(eq("Bearer t"), anyString(), any())).thenReturn(Uni.createFrom().voidItem());
+
+        List<BatchItemResult> results = service.bulkSetEnabled(Multi.createFrom().items("u1", "u2"), true)
+                .collect().asList().await().indefinitely();
+
+        assertTrue(results.stream().allMatch(BatchItemResult::succeeded));
+        verify(api, never()).logout(anyString(), anyString());
+    }
+
+    @Test
+    void listUsersWithRealmRoles_listsEachRoleOnce_andJoinsOntoPage() {
+        service.indexSkippedRoles = Set.of("offline_access");
+        service.lookupConcurrency = 2;
+        when(api.listUsers("Bearer t", null, 0, 3)).thenReturn(Uni.createFrom().item(
+                Buffer.buffer("[{\"id\":\"u1\"},{\"id\":\"u2\"},{\"id\":\"u3\"}]")));
+        when(api.listRealmRoles("Bearer t")).thenReturn(Uni.createFrom().item(
+                List.of(role("client"), role("Customer"), role("offline_access"))));
+        // at most page size + 1 members per role, one of them outside the listed page
+        when(api.getRealmRoleUsers("Bearer t", "Customer", 0, 4)).thenReturn(Uni.createFrom().item(
+                Buffer.buffer("[{\"id\":\"u1\"},{\"id\":\"other\"},{\"id\":\"u3\"}]")));
+        when(api.getRealmRoleUsers("Bearer t", "client", 0, 4)).thenReturn(Uni.createFrom().item(
+                Buffer.buffer("[{\"id\":\"u1\"}]")));
+
+        JsonArray users = service.listUsersWithRealmRoles(null, 0, 3).await().indefinitely();
+
+        assertEquals(3, users.size());
+        assertEquals(List.of("Customer", "client"), users.getJsonObject(0).getJsonArray("realmRoles").getValuesAs(JsonString::getString));
+        assertTrue(users.getJsonObject(1).getJsonArray("realmRoles").isEmpty());
+        assertEquals("Customer", users.getJsonObject(2).getJsonArray("realmRoles").getString(0));
+        verify(api, never()).getRealmRoleUsers(eq("Bearer t"), eq("offline_access"), any(), any());
+        verify(api, never()).getEffectiveRealmRoles(anyString(), anyString());
+    }
+
+    @Test
+    void listUsersWithRealmRoles_roleLargerThanPage_readsDirectRolesPerUser_andRemembersTheRole() {
+        service.indexSkippedRoles = Set.of("offline_access");
+        when(api.listUsers("Bearer t", null, 0, 2)).thenReturn(Uni.createFrom().item(
+                Buffer.buffer("[{\"id\":\"u1\"},{\"id\":\"u2\"}]")));
+        when(api.listRealmRoles("Bearer t")).thenReturn(Uni.createFrom().item(List.of(role("client"), role("Customer"))));
+        when(api.getRealmRoleUsers("Bearer t", "client", 0, 3)).thenReturn(Uni.createFrom().item(
+                Buffer.buffer("[{\"id\":\"u2\"}]")));
+        // more members than the page: the listing is cut and no further page is read
+        when(api.getRealmRoleUsers("Bearer t", "Customer", 0, 3)).thenReturn(Uni.createFrom().item(
+                Buffer.buffer("[{\"id\":\"a\"},{\"id\":\"b\"},{\"id\":\"c\"}]")));
+        // direct mappings, as the index would have reported them: no roles inherited through composites
+        when(api.getRealmRoleMappings("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of(role("offline_access"), role("Customer"))));
+        when(api.getRealmRoleMappings("Bearer t", "u2")).thenReturn(Uni.createFrom().item(List.of(role("client"), role("Customer"))));
+
+        JsonArray users = service.listUsersWithRealmRoles(null, 0, 2).await().indefinitely();
+
+        assertEquals(List.of("Customer"), users.getJsonObject(0).getJsonArray("realmRoles").getValuesAs(JsonString::getString));
+        assertEquals(List.of("Customer", "client"), users.getJsonObject(1).getJsonArray("realmRoles").getValuesAs(JsonString::getString));
+        verify(api, never()).getEffectiveRealmRoles(anyString(), anyString());
+
+        // Customer is known to overflow this page size: the next page reads roles per user without listing any role
+        service.listUsersWithRealmRoles(null, 0, 2).await().indefinitely();
+
+        verify(api, times(1)).listRealmRoles("Bearer t");
+        verify(api, times(2)).getRealmRoleUsers(eq("Bearer t"), anyString(), any(), any());
+        verify(api, times(2)).getRealmRoleMappings("Bearer t", "u1");
+    }
+
+    @Test
+    void lookupUsers_dedupes_usesCache_dropsUnknown_keepsOrder() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        for (String id : List.of("u1", "u2", "u3")) {
+            when(api.getUser("Bearer t", id)).thenReturn(Uni.createFrom().item(Json.createObjectBuilder().add("id", id).build())
+                    .onSubscription().invoke(() -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    .onItem().delayIt().by(Duration.ofMillis(20))
+                    .onTermination().invoke(inFlight::decrementAndGet));
+        }
+        when(api.getUser("Bearer t", "gone")).thenReturn(Uni.createFrom().failure(new WebApplicationException(404)));
+        when(api.getEffectiveRealmRoles(eq("Bearer t"), anyString())).thenReturn(Uni.createFrom().item(List.of(role("Customer"))));
+        service.users.put("cached", Json.createObjectBuilder().add("id", "cached").build());
+
+        Map<String, JsonObject> found = service.lookupUsers(List.of("u3", "u1", "gone", "u1", "cached", "u2", "u3"))
+                .await().indefinitely();
+
+        assertEquals(List.of("u3", "u1", "cached", "u2"), List.copyOf(found.keySet()));
+        assertEquals("Customer", found.get("cached").getJsonArray("realmRoles").getString(0));
+        verify(api, times(1)).getUser("Bearer t", "u1");
+        verify(api, never()).getUser("Bearer t", "cached");
+        assertTrue(maxInFlight.get() <= 2);
+    }
+
+    @Test
+    void setEnabled_dropsCachedUser() {
+        service.users.put("u1", Json.createObjectBuilder().add("id", "u1").add("enabled", true).build());
+        when(api.updateUser(eq("Bearer t"), eq("u1"), any())).thenReturn(Uni.createFrom().voidItem());
+
+        service.setEnabled("u1", false).await().indefinitely();
+
+        assertTrue(service.users.get("u1").isEmpty());
+    }
+
+    @Test
+    void promoteToAdmin_readsOnce_grantsFirst_thenRevokesAndLeavesInParallel() {
+        RoleRepresentation admin = role("admin");
+        RoleRepresentation customer = role("Customer");
+        GroupRepresentation customers = new GroupRepresentation();
+        customers.id = "g1";
+        customers.name = "customers";
+        service.groups.put(customers);
+        when(service.roleCache.getAsync("admin")).thenReturn(Uni.createFrom().item(admin));
+        when(service.roleCache.getAsync("Customer")).thenReturn(Uni.createFrom().item(customer));
+        when(api.getEffectiveRealmRoles("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of(customer)));
+        when(api.getUserGroups("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of(customers)));
+        AtomicBoolean granted = new AtomicBoolean();
+        when(api.addRealmRoleMappings("Bearer t", "u1", List.of(admin)))
+                .thenReturn(Uni.createFrom().voidItem().invoke(() -> granted.set(true)));
+        when(api.removeRealmRoleMappings("Bearer t", "u1", List.of(customer)))
+                .thenAnswer(inv -> granted.get() ? Uni.createFrom().voidItem() : Uni.createFrom().failure(new IllegalStateException("revoked first")));
+        when(api.leaveGroup("Bearer t", "u1", "g1")).thenReturn(Uni.createFrom().voidItem());
+
+        Promotion changes = service.promoteToAdmin("u1").await().indefinitely().orElseThrow();
+
+        assertEquals(new Promotion(List.of("admin"), List.of("Customer"), List.of("customers")), changes);
+        verify(api, times(1)).getEffectiveRealmRoles("Bearer t", "u1");
+        verify(api, times(1)).getUserGroups("Bearer t", "u1");
+        verify(api, never()).searchGroups(anyString(), anyString());
+        verify(api).removeRealmRoleMappings("Bearer t", "u1", List.of(customer));
+        verify(api).leaveGroup("Bearer t", "u1", "g1");
+    }
+
+    @Test
+    void promoteToAdmin_groupLeaveFailsAfterGrant_reportsPartialPromotion() {
+        RoleRepresentation admin = role("admin");
+        RoleRepresentation customer = role("Customer");
+        GroupRepresentation customers = new GroupRepresentation();
+        customers.id = "g1";
+        customers.name = "customers";
+        service.groups.put(customers);
+        when(service.roleCache.getAsync("admin")).thenReturn(Uni.createFrom().item(admin));
+        when(service.roleCache.getAsync("Customer")).thenReturn(Uni.createFrom().item(customer));
+        when(api.getEffectiveRealmRoles("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of(customer)));
+        when(api.getUserGroups("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of(customers)));
+        when(api.addRealmRoleMappings("Bearer t", "u1", List.of(admin))).thenReturn(Uni.createFrom().voidItem());
+        when(api.removeRealmRoleMappings("Bearer t", "u1", List.of(customer))).thenReturn(Uni.createFrom().voidItem());
+        when(api.leaveGroup("Bearer t", "u1", "g1")).thenReturn(Uni.createFrom().failure(new WebApplicationException(500)));
+
+        Promotion changes = service.promoteToAdmin("u1").await().indefinitely().orElseThrow();
+
+        assertTrue(changes.partial());
+        assertEquals(List.of("admin"), changes.addedRealmRoles());
+        assertEquals(List.of("Customer"), changes.removedRealmRoles());
+        assertTrue(changes.leftGroups().isEmpty());
+        assertEquals(1, changes.failed().size());
+        Promotion.Failure failure = changes.failed().get(0);
+        assertEquals("leaveGroup", failure.step());
+        assertEquals("customers", failure.target());
+        assertEquals(500, failure.status());
+        assertTrue(failure.error().startsWith("Remove from group failed"));
+    }
+
+    @Test
+    void promoteToAdmin_alreadyAdmin_changesNothing() {
+        when(service.roleCache.getAsync("admin")).thenReturn(Uni.createFrom().item(role("admin")));
+        when(api.getEffectiveRealmRoles("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of(role("admin"))));
+        when(api.getUserGroups("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of()));
+        when(api.searchGroups("Bearer t", "customers")).thenReturn(Uni.createFrom().item(List.of()));
+
+        assertTrue(service.promoteToAdmin("u1").await().indefinitely().isEmpty());
+        verify(api, never()).addRealmRoleMappings(anyString(), anyString(), any());
+    }
+}
@@ -0,0 +1,257 @@
+package org.auth.service;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import io.vertx.core.buffer.Buffer;
+import org.auth.client.GroupRepresentation;
+import org.auth.client.KeycloakAdminApi;
+import org.auth.client.RoleRepresentation;
+import org.auth.resources.KcCallBudgetFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the streaming export, import, bulk enable, job variants and request memo of KcAdminService.
+ */
+public class KcAdminServiceTest {
+
+    private KeycloakAdminApi api;
+    private KcAdminService service;
+
+    @BeforeEach
+    void setUp() {
+        api = mock(KeycloakAdminApi.class);
+        KcTokenManager tokens = mock(KcTokenManager.class);
+        when(tokens.token()).thenReturn(CompletableFuture.completedFuture("t"));
+
+        service = new KcAdminService();
+        service.api = api;
+        service.tokens = tokens;
+        service.limiter = KcAdminLimiter.of(64, 4, 64, 1000, Duration.ofSeconds(5));
+        service.exportPageSize = 2;
+    }
+
+    @Test
+    void exportUsers_pagesUntilShortPage_writesOneLinePerUser() throws IOException {
+        when(api.listUsers("Bearer t", null, 0, 2)).thenReturn(Uni.createFrom().item(Buffer.buffer("[{\"id\":\"1\"},{\"id\":\"2\"}]")));
+        when(api.listUsers("Bearer t", null, 2, 2)).thenReturn(Uni.createFrom().item(Buffer.buffer("[{\"id\":\"3\"}]")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportUsers(" ", out);
+
+        assertEquals("{\"id\":\"1\"}\n{\"id\":\"2\"}\n{\"id\":\"3\"}\n", out.toString(StandardCharsets.UTF_8));
+        verify(api).listUsers("Bearer t", null, 0, 2);
+        verify(api).listUsers("Bearer t", null, 2, 2);
+        verifyNoMoreInteractions(api);
+    }
+
+    @Test
+    void exportUsers_clientGone_cancelsPrefetchedPage() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(api.listUsers("Bearer t", null, 0, 2)).thenReturn(Uni.createFrom().item(Buffer.buffer("[{\"id\":\"1\"},{\"id\":\"2\"}]")));
+        when(api.listUsers("Bearer t", null, 2, 2)).thenReturn(Uni.createFrom().<Buffer>nothing()
+                .onCancellation().invoke(() -> cancelled.set(true)));
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("connection reset");
+            }
+        };
+
+        assertThrows(IOException.class, () -> service.exportUsers(null, broken));
+        // the next page was already requested before writing the first one
+        verify(api).listUsers("Bearer t", null, 2, 2);
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void importUsers_boundsRowsInFlight_andWritesOneResultPerRow() throws IOException {
+        KcAdminReactiveService async = mock(KcAdminReactiveService.class);
+        service.async = async;
+        service.importConcurrency = 2;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(async.provision(anyInt(), any())).thenAnswer(inv -> {
+            int index = inv.getArgument(0);
+            return Uni.createFrom().item(BatchItemResult.ok(index, "id-" + index))
+                    .onSubscription().invoke(() -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    .onItem().delayIt().by(Duration.ofMillis(10))
+                    .onItem().invoke(inFlight::decrementAndGet);
+        });
+        UserImportReader rows = UserImportReader.open(UserImportReader.Format.CSV, new ByteArrayInputStream((
+                "username,email,password,realmRoles\n" +
+                "a,a@x,p,\n" +
+                "b,b@x,p,admin\n" +
+                "c,c@x,p,\n" +
+                "d,d@x,p,\n" +
+                "e,e@x,p,\n").getBytes(StandardCharsets.UTF_8)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.importUsers(rows, u -> u.realmRoles().contains("admin") ? "no admin" : null, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(5, lines.size());
+        assertTrue(lines.contains("{\"index\":1,\"status\":400,\"error\":\"no admin\"}"));
+        assertTrue(lines.contains("{\"index\":4,\"id\":\"id-4\"}"));
+        assertTrue(maxInFlight.get() <= 2);
+        verify(async, times(4)).provision(anyInt(), any());
+    }
+
+    @Test
+    void bulkSetEnabled_writesOneResultPerUser() throws IOException {
+        KcAdminReactiveService async = mock(KcAdminReactiveService.class);
+        service.async = async;
+        when(async.bulkSetEnabled(any(), eq(false))).thenReturn(Multi.createFrom().items(
+                BatchItemResult.ok(1, "u2"),
+                new BatchItemResult(0, "boss", 403, "You cannot enable/disable an administrator.")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.bulkSetEnabled(List.of("boss", "u2"), false, out);
+
+        assertEquals("{\"index\":1,\"id\":\"u2\"}\n"
+                + "{\"index\":0,\"id\":\"boss\",\"status\":403,\"error\":\"You cannot enable/disable an administrator.\"}\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void setEnabled_progressThrows_cancelsRemainingWork() {
+        KcAdminReactiveService async = mock(KcAdminReactiveService.class);
+        service.async = async;
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<MultiEmitter<? super BatchItemResult>> source = new AtomicReference<>();
+        // the first result is emitted on subscription, the second is only ever produced by the test
+        when(async.bulkSetEnabled(any(), eq(false))).thenReturn(Multi.createFrom().<BatchItemResult>emitter(e -> {
+                    source.set(e);
+                    e.emit(BatchItemResult.ok(0, "u1"));
+                })
+                .onCancellation().invoke(() -> cancelled.set(true)));
+
+        assertThrows(IllegalStateException.class, () -> service.setEnabled(List.of("u1", "u2"), false, r -> {
+            throw new IllegalStateException("stop");
+        }));
+        assertTrue(cancelled.get());
+        assertTrue(source.get().isCancelled());
+    }
+
+    private void stubRealmRoles(String userId, String... names) {
+        service.userRoles = mock(UserRoleCache.class);
+        when(service.userRoles.get(any())).thenReturn(Optional.empty());
+        service.endpoint = mock(RoleMappingEndpoint.class);
+        service.roleCache = mock(RealmRoleCache.class);
+        service.roleChanges = mock(RoleChangeCoalescer.class);
+        List<RoleRepresentation> roles = Arrays.stream(names).map(n -> {
+            RoleRepresentation r = new RoleRepresentation();
+            r.name = n;
+            return r;
+        }).toList();
+        when(api.getEffectiveRealmRoles(any(), eq(userId))).thenReturn(Uni.createFrom().item(roles));
+    }
+
+    @Test
+    void requestMemo_readsOncePerRequest_untilAWriteToThatUser() {
+        KcRequestCalls calls = new KcRequestCalls();
+        service.calls = calls;
+        service.requestActive = () -> true;
+        stubRealmRoles("u1", "Customer");
+        when(service.roleCache.getAllAsync(List.of("Customer"))).thenReturn(Uni.createFrom().item(List.of(new RoleRepresentation())));
+        when(api.removeRealmRoleMappings(any(), eq("u1"), any())).thenReturn(Uni.createFrom().voidItem());
+        Uni<Void> write = service.limiter.limit(api.removeRealmRoleMappings("Bearer t", "u1", List.of()));
+        when(service.roleChanges.remove("u1", List.of("Customer"))).thenReturn(write);
+
+        assertFalse(service.userHasRealmRole("u1", "admin"));
+        assertTrue(service.userHasRealmRole("u1", "customer"));
+        verify(api, times(1)).getEffectiveRealmRoles(any(), eq("u1"));
+
+        service.removeRealmRoles("u1", List.of("Customer"));
+        service.getUserRealmRoles("u1");
+
+        verify(api, times(2)).getEffectiveRealmRoles(any(), eq("u1"));
+        // two role reads and the write; the memoized read sends nothing
+        assertEquals(3, calls.calls());
+        assertEquals(1, calls.memoHits());
+    }
+
+    @Test
+    void requestBudget_countsEveryHttpCallOfAPromotion_inTheResponseHeader() {
+        KcAdminReactiveService async = new KcAdminReactiveService();
+        async.api = api;
+        async.tokens = service.tokens;
+        async.limiter = service.limiter;
+        async.userRoles = new UserRoleCache();
+        async.userRoles.ttl = Duration.ofSeconds(30);
+        async.userRoles.maxSize = 10;
+        async.endpoint = new RoleMappingEndpoint();
+        async.endpoint.interval = Duration.ofHours(1);
+        async.roleCache = mock(RealmRoleCache.class);
+        async.groups = new GroupCache();
+        async.groups.ttl = Duration.ofMinutes(10);
+        async.groups.limiter = service.limiter;
+        service.async = async;
+        KcRequestCalls calls = new KcRequestCalls();
+        service.calls = calls;
+        service.requestActive = () -> true;
+
+        RoleRepresentation admin = new RoleRepresentation();
+        admin.name = "admin";
+        RoleRepresentation customer = new RoleRepresentation();
+        customer.name = "Customer";
+        GroupRepresentation customers = new GroupRepresentation();
+        customers.id = "g1";
+        customers.name = "customers";
+        async.groups.put(customers); // cached: no search call
+        when(async.roleCache.getAsync("admin")).thenReturn(Uni.createFrom().item(admin));
+        when(async.roleCache.getAsync("Customer")).thenReturn(Uni.createFrom().item(customer));
+        when(api.getEffectiveRealmRoles("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of(customer)));
+        when(api.getUserGroups("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of(customers)));
+        when(api.addRealmRoleMappings("Bearer t", "u1", List.of(admin))).thenReturn(Uni.createFrom().voidItem());
+        when(api.removeRealmRoleMappings("Bearer t", "u1", List.of(customer))).thenReturn(Uni.createFrom().voidItem());
+        when(api.leaveGroup("Bearer t", "u1", "g1")).thenReturn(Uni.createFrom().voidItem());
+
+        assertTrue(service.promoteToAdmin("u1").isPresent());
+
+        ContainerResponseContext response = mock(ContainerResponseContext.class);
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        when(response.getHeaders()).thenReturn(headers);
+        new KcCallBudgetFilter(calls).budget(response, null);
+
+        // roles, groups, grant, revoke and group leave: one per HTTP request sent
+        assertEquals(5, headers.getFirst("X-Keycloak-Calls"));
+        assertEquals(0, headers.getFirst("X-Keycloak-Memo-Hits"));
+    }
+
+    @Test
+    void requestMemo_outsideRequest_isNotUsed() {
+        KcRequestCalls calls = new KcRequestCalls();
+        service.calls = calls;
+        service.requestActive = () -> false;
+        stubRealmRoles("u1", "Customer");
+
+        service.getUserRealmRoles("u1");
+        service.getUserRealmRoles("u1");
+
+        verify(api, times(2)).getEffectiveRealmRoles(any(), eq("u1"));
+        assertEquals(0, calls.calls());
+    }
+}
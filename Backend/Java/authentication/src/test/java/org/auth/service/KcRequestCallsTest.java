@@ -0,0 +1,54 @@
+package org.auth.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the per-request memo and call budget.
+ */
+public class KcRequestCallsTest {
+
+    @Test
+    void read_memoizesPerScopeAndKey_nullsIncluded() {
+        KcRequestCalls calls = new KcRequestCalls();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(calls.read("u1", "user", () -> { loads.incrementAndGet(); return null; }));
+        assertNull(calls.read("u1", "user", () -> { loads.incrementAndGet(); return "x"; }));
+        assertEquals("u2", calls.read("u2", "user", () -> { loads.incrementAndGet(); return "u2"; }));
+
+        assertEquals(2, loads.get());
+        assertEquals(1, calls.memoHits());
+    }
+
+    @Test
+    void forget_dropsOnlyThatScope() {
+        KcRequestCalls calls = new KcRequestCalls();
+        calls.read("u1", "roles", () -> "a");
+        calls.read("u2", "roles", () -> "b");
+
+        calls.forget("u1");
+
+        assertEquals("a2", calls.read("u1", "roles", () -> "a2"));
+        assertEquals("b", calls.read("u2", "roles", () -> "b2"));
+        calls.forgetAll();
+        assertEquals("b3", calls.read("u2", "roles", () -> "b3"));
+    }
+
+    @Test
+    void sent_countsCallsFromAnyThread_andLeavesTheMemoAlone() throws Exception {
+        KcRequestCalls calls = new KcRequestCalls();
+        Thread io = new Thread(() -> calls.sent(2_000_000));
+        io.start();
+        io.join();
+        calls.sent(1_000_000);
+
+        assertEquals(3, calls.upstreamTime().toMillis());
+        assertEquals(2, calls.calls());
+        assertEquals(0, calls.memoHits());
+        assertSame(calls, calls.context().get(KcRequestCalls.CONTEXT_KEY));
+    }
+}
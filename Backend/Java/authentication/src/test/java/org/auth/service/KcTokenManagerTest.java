@@ -0,0 +1,131 @@
+package org.auth.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for KcTokenManager.
+ * The Keycloak token endpoint is replaced by futures completed from the test.
+ */
+public class KcTokenManagerTest {
+
+    private Instant now;
+    private List<CompletableFuture<KcTokenManager.CachedToken>> requests;
+    private KcTokenManager tokens;
+
+    @BeforeEach
+    void setUp() {
+        now = Instant.parse("2025-01-01T00:00:00Z");
+        requests = new ArrayList<>();
+        tokens = new KcTokenManager() {
+            @Override
+            CompletionStage<CachedToken> requestToken() {
+                CompletableFuture<CachedToken> f = new CompletableFuture<>();
+                requests.add(f);
+                return f;
+            }
+        };
+        tokens.minValidity = Duration.ofSeconds(10);
+        tokens.refreshAhead = Duration.ofSeconds(30);
+        tokens.clock = Clock.fixed(now, ZoneOffset.UTC);
+    }
+
+    private void advance(Duration d) {
+        now = now.plus(d);
+        tokens.clock = Clock.fixed(now, ZoneOffset.UTC);
+    }
+
+    private KcTokenManager.CachedToken tokenValidFor(String value, Duration d) {
+        return new KcTokenManager.CachedToken(value, now.plus(d));
+    }
+
+    @Test
+    void token_concurrentCallers_shareSingleRequest() {
+        CompletableFuture<String> a = tokens.token().toCompletableFuture();
+        CompletableFuture<String> b = tokens.token().toCompletableFuture();
+
+        assertEquals(1, requests.size());
+        assertFalse(a.isDone());
+
+        requests.get(0).complete(tokenValidFor("t1", Duration.ofMinutes(5)));
+
+        assertEquals("t1", a.join());
+        assertEquals("t1", b.join());
+    }
+
+    @Test
+    void token_cachedUntilRefreshWindow() {
+        tokens.token();
+        requests.get(0).complete(tokenValidFor("t1", Duration.ofMinutes(5)));
+
+        advance(Duration.ofMinutes(4));
+
+        assertEquals("t1", tokens.getToken());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void token_insideRefreshAhead_returnsCurrentAndRefreshesInBackground() {
+        tokens.token();
+        requests.get(0).complete(tokenValidFor("t1", Duration.ofMinutes(5)));
+
+        advance(Duration.ofMinutes(5).minusSeconds(20));
+
+        assertEquals("t1", tokens.getToken());
+        assertEquals("t1", tokens.getToken());
+        assertEquals(2, requests.size());
+
+        requests.get(1).complete(tokenValidFor("t2", Duration.ofMinutes(5)));
+        assertEquals("t2", tokens.getToken());
+    }
+
+    @Test
+    void token_pastMinValidity_waitsForNewToken() {
+        tokens.token();
+        requests.get(0).complete(tokenValidFor("t1", Duration.ofMinutes(5)));
+
+        advance(Duration.ofMinutes(5).minusSeconds(5));
+
+        CompletableFuture<String> next = tokens.token().toCompletableFuture();
+        assertFalse(next.isDone());
+
+        requests.get(1).complete(tokenValidFor("t2", Duration.ofMinutes(5)));
+        assertEquals("t2", next.join());
+    }
+
+    @Test
+    void token_failedRequest_isNotCachedAndNextCallRetries() {
+        CompletableFuture<String> first = tokens.token().toCompletableFuture();
+        requests.get(0).completeExceptionally(new RuntimeException("Cannot obtain admin token. Status=503"));
+
+        assertTrue(first.isCompletedExceptionally());
+
+        CompletableFuture<String> retry = tokens.token().toCompletableFuture();
+        assertEquals(2, requests.size());
+
+        requests.get(1).complete(tokenValidFor("t2", Duration.ofMinutes(5)));
+        assertEquals("t2", retry.join());
+    }
+
+    @Test
+    void invalidate_forcesNewGrant() {
+        tokens.token();
+        requests.get(0).complete(tokenValidFor("t1", Duration.ofMinutes(5)));
+
+        tokens.invalidate();
+        tokens.token();
+
+        assertEquals(2, requests.size());
+    }
+}
@@ -0,0 +1,117 @@
+package org.auth.service;
+
+import io.smallrye.mutiny.Uni;
+import org.auth.client.KeycloakAdminApi;
+import org.auth.client.RoleRepresentation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.WebApplicationException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RealmRoleCache with a mocked Keycloak client.
+ */
+public class RealmRoleCacheTest {
+
+    private KeycloakAdminApi api;
+    private RealmRoleCache cache;
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        api = mock(KeycloakAdminApi.class);
+        KcTokenManager tokens = mock(KcTokenManager.class);
+        when(tokens.token()).thenReturn(CompletableFuture.completedFuture("t"));
+
+        now = Instant.parse("2025-01-01T00:00:00Z");
+        cache = new RealmRoleCache();
+        cache.api = api;
+        cache.tokens = tokens;
+        cache.limiter = KcAdminLimiter.of(64, 4, 64, 1000, Duration.ofSeconds(5));
+        cache.ttl = Duration.ofMinutes(10);
+        cache.clock = Clock.fixed(now, ZoneOffset.UTC);
+    }
+
+    private static RoleRepresentation role(String name) {
+        RoleRepresentation r = new RoleRepresentation();
+        r.id = name + "-id";
+        r.name = name;
+        return r;
+    }
+
+    @Test
+    void reload_preloadsAllRoles_soLookupsDoNotCallKeycloak() {
+        when(api.listRealmRoles("Bearer t")).thenReturn(Uni.createFrom().item(List.of(role("admin"), role("Customer"))));
+
+        assertEquals(2, cache.reload().await().indefinitely());
+        List<RoleRepresentation> reps = cache.getAll(List.of("Customer", "admin"));
+
+        assertEquals("Customer-id", reps.get(0).id);
+        assertEquals("admin-id", reps.get(1).id);
+        verify(api).listRealmRoles("Bearer t");
+        verifyNoMoreInteractions(api);
+    }
+
+    @Test
+    void get_miss_fetchesOnceThenServesFromCache() {
+        when(api.getRealmRole("Bearer t", "client")).thenReturn(Uni.createFrom().item(role("client")));
+
+        cache.get("client");
+        cache.get("client");
+
+        verify(api, times(1)).getRealmRole("Bearer t", "client");
+    }
+
+    @Test
+    void get_afterTtl_refetches() {
+        when(api.getRealmRole("Bearer t", "client")).thenReturn(Uni.createFrom().item(role("client")));
+
+        cache.get("client");
+        cache.clock = Clock.fixed(now.plus(Duration.ofMinutes(11)), ZoneOffset.UTC);
+        cache.get("client");
+
+        verify(api, times(2)).getRealmRole("Bearer t", "client");
+    }
+
+    @Test
+    void invalidate_dropsEntry() {
+        when(api.getRealmRole("Bearer t", "client")).thenReturn(Uni.createFrom().item(role("client")));
+
+        cache.get("client");
+        cache.invalidate("client");
+        cache.get("client");
+
+        verify(api, times(2)).getRealmRole("Bearer t", "client");
+    }
+
+    @Test
+    void getAsync_concurrentMisses_shareOneRequest_andFailuresAreNotKept() throws Exception {
+        CompletableFuture<RoleRepresentation> answer = new CompletableFuture<>();
+        when(api.getRealmRole("Bearer t", "client"))
+                .thenReturn(Uni.createFrom().completionStage(answer))
+                .thenReturn(Uni.createFrom().item(role("client")));
+
+        CompletableFuture<RoleRepresentation> first = cache.getAsync("client").subscribeAsCompletionStage();
+        CompletableFuture<RoleRepresentation> second = cache.getAsync("client").subscribeAsCompletionStage();
+        answer.completeExceptionally(new WebApplicationException(503));
+
+        assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        verify(api, times(1)).getRealmRole("Bearer t", "client");
+
+        assertEquals("client", cache.get("client").name);
+        verify(api, times(2)).getRealmRole("Bearer t", "client");
+    }
+}
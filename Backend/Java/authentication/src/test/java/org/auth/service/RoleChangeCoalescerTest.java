@@ -0,0 +1,154 @@
+package org.auth.service;
+
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.ForbiddenException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RoleChangeCoalescer with a mocked reactive service.
+ */
+public class RoleChangeCoalescerTest {
+
+    private KcAdminReactiveService async;
+    private RoleChangeCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        async = mock(KcAdminReactiveService.class);
+        coalescer = new RoleChangeCoalescer();
+        coalescer.async = async;
+        coalescer.mutations = new UserMutations();
+        coalescer.window = Duration.ofMillis(50);
+        when(async.userHasRealmRole(anyString(), eq("admin"))).thenReturn(Uni.createFrom().item(false));
+    }
+
+    @Test
+    void disabled_writesEachChangeDirectly() {
+        coalescer.window = Duration.ZERO;
+        when(async.addRealmRoles("u1", List.of("A"))).thenReturn(Uni.createFrom().voidItem());
+
+        coalescer.add("u1", List.of("A")).await().indefinitely();
+
+        verify(async).userHasRealmRole("u1", "admin");
+        verify(async).addRealmRoles("u1", List.of("A"));
+        verifyNoMoreInteractions(async);
+    }
+
+    @Test
+    void changesInWindow_cancelOutAndDiffAgainstCurrentRoles() throws Exception {
+        when(async.directRealmRoles("u1")).thenReturn(Uni.createFrom().item(List.of("B", "D")));
+        when(async.addRealmRoles("u1", List.of("C"))).thenReturn(Uni.createFrom().voidItem());
+        when(async.removeRealmRoles("u1", List.of("D"))).thenReturn(Uni.createFrom().voidItem());
+
+        CompletableFuture<Void> first = coalescer.add("u1", List.of("A", "B")).subscribeAsCompletionStage();
+        CompletableFuture<Void> second = coalescer.remove("u1", List.of("A", "D")).subscribeAsCompletionStage();
+        CompletableFuture<Void> third = coalescer.add("u1", List.of("C")).subscribeAsCompletionStage();
+        CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+
+        // A added then removed: nothing; B already held: nothing
+        verify(async, times(4)).userHasRealmRole("u1", "admin"); // each request, then the flush
+        verify(async).directRealmRoles("u1");
+        verify(async).addRealmRoles("u1", List.of("C"));
+        verify(async).removeRealmRoles("u1", List.of("D"));
+        verifyNoMoreInteractions(async);
+    }
+
+    @Test
+    void failedWrite_failsOnlyTheCallersItCarried() throws Exception {
+        when(async.directRealmRoles("u1")).thenReturn(Uni.createFrom().item(List.of("B")));
+        when(async.addRealmRoles("u1", List.of("nope"))).thenReturn(Uni.createFrom().failure(new KcCallException("Add realm roles failed", 404)));
+        when(async.removeRealmRoles("u1", List.of("B"))).thenReturn(Uni.createFrom().voidItem());
+
+        CompletableFuture<Void> add = coalescer.add("u1", List.of("nope")).subscribeAsCompletionStage();
+        CompletableFuture<Void> remove = coalescer.remove("u1", List.of("B")).subscribeAsCompletionStage();
+
+        remove.get(5, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> add.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(KcCallException.class, e.getCause());
+    }
+
+    @Test
+    void diffIsCaseInsensitive_andUsesTheMappedSpellingToRemove() throws Exception {
+        // "customer" is mapped as "Customer"; "Reader" is only inherited, so it has no direct mapping
+        when(async.directRealmRoles("u1")).thenReturn(Uni.createFrom().item(List.of("Customer")));
+        when(async.addRealmRoles("u1", List.of("Reader"))).thenReturn(Uni.createFrom().voidItem());
+        when(async.removeRealmRoles("u1", List.of("Customer"))).thenReturn(Uni.createFrom().voidItem());
+
+        CompletableFuture<Void> add = coalescer.add("u1", List.of("customer", "Reader")).subscribeAsCompletionStage();
+        CompletableFuture<Void> remove = coalescer.remove("u1", List.of("CUSTOMER")).subscribeAsCompletionStage();
+        CompletableFuture.allOf(add, remove).get(5, TimeUnit.SECONDS);
+
+        verify(async, times(3)).userHasRealmRole("u1", "admin");
+        verify(async).directRealmRoles("u1");
+        verify(async).addRealmRoles("u1", List.of("Reader"));
+        verify(async).removeRealmRoles("u1", List.of("Customer"));
+        verifyNoMoreInteractions(async);
+    }
+
+    @Test
+    void concurrentRequestsForOneUser_shareOneBatch() throws Exception {
+        // the first check is slow: the second request waits for the user's turn, not for the first write
+        CompletableFuture<Boolean> firstCheck = new CompletableFuture<>();
+        when(async.userHasRealmRole("u1", "admin"))
+                .thenReturn(Uni.createFrom().completionStage(firstCheck))
+                .thenReturn(Uni.createFrom().item(false));
+        when(async.directRealmRoles("u1")).thenReturn(Uni.createFrom().item(List.of("B")));
+        when(async.addRealmRoles("u1", List.of("A"))).thenReturn(Uni.createFrom().voidItem());
+        when(async.removeRealmRoles("u1", List.of("B"))).thenReturn(Uni.createFrom().voidItem());
+
+        ExecutorService requests = Executors.newFixedThreadPool(2);
+        try {
+            Future<CompletableFuture<Void>> add = requests.submit(() -> coalescer.add("u1", List.of("A")).subscribeAsCompletionStage());
+            Future<CompletableFuture<Void>> remove = requests.submit(() -> coalescer.remove("u1", List.of("B")).subscribeAsCompletionStage());
+            CompletableFuture<Void> added = add.get(5, TimeUnit.SECONDS);
+            CompletableFuture<Void> removed = remove.get(5, TimeUnit.SECONDS);
+            firstCheck.complete(false);
+            CompletableFuture.allOf(added, removed).get(5, TimeUnit.SECONDS);
+        } finally {
+            requests.shutdown();
+        }
+
+        verify(async, times(1)).addRealmRoles(eq("u1"), anyList());
+        verify(async, times(1)).removeRealmRoles(eq("u1"), anyList());
+        verify(async).directRealmRoles("u1");
+    }
+
+    @Test
+    void targetIsAdmin_failsWithForbidden_andQueuesNothing() {
+        when(async.userHasRealmRole("u1", "admin")).thenReturn(Uni.createFrom().item(true));
+
+        ForbiddenException e = assertThrows(ForbiddenException.class, () -> coalescer.add("u1", List.of("A")).await().indefinitely());
+
+        assertEquals("Administrator roles cannot be changed.", e.getMessage());
+        verify(async).userHasRealmRole("u1", "admin");
+        verifyNoMoreInteractions(async);
+    }
+
+    @Test
+    void userPromotedBeforeTheFlush_failsTheQueuedChanges_withoutWriting() throws Exception {
+        when(async.userHasRealmRole("u1", "admin"))
+                .thenReturn(Uni.createFrom().item(false))
+                .thenReturn(Uni.createFrom().item(true));
+
+        CompletableFuture<Void> add = coalescer.add("u1", List.of("A")).subscribeAsCompletionStage();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> add.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ForbiddenException.class, e.getCause());
+        verify(async, times(2)).userHasRealmRole("u1", "admin");
+        verifyNoMoreInteractions(async);
+    }
+}
@@ -0,0 +1,92 @@
+package org.auth.service;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
+import org.auth.client.KeycloakAdminApi;
+import org.auth.service.RoleMappingEndpoint.Variant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jakarta.ws.rs.WebApplicationException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RoleMappingEndpoint (probe, expiry and reset on unexpected status).
+ */
+public class RoleMappingEndpointTest {
+
+    private KeycloakAdminApi api;
+    private RoleMappingEndpoint endpoint;
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        api = mock(KeycloakAdminApi.class);
+        KcTokenManager tokens = mock(KcTokenManager.class);
+        when(tokens.token()).thenReturn(CompletableFuture.completedFuture("t"));
+
+        now = Instant.parse("2025-01-01T00:00:00Z");
+        endpoint = new RoleMappingEndpoint();
+        endpoint.api = api;
+        endpoint.tokens = tokens;
+        endpoint.limiter = KcAdminLimiter.of(64, 4, 64, 1000, Duration.ofSeconds(5));
+        endpoint.interval = Duration.ofHours(1);
+        endpoint.clock = Clock.fixed(now, ZoneOffset.UTC);
+    }
+
+    @Test
+    void probe_compositeAnswers_recordsComposite() {
+        when(api.listUsers("Bearer t", null, 0, 1)).thenReturn(Uni.createFrom().item(Buffer.buffer("[{\"id\":\"u1\"}]")));
+        when(api.getEffectiveRealmRoles("Bearer t", "u1")).thenReturn(Uni.createFrom().item(List.of()));
+
+        assertEquals(Variant.COMPOSITE, endpoint.probe().await().indefinitely());
+        assertEquals(Variant.COMPOSITE, endpoint.known());
+    }
+
+    @Test
+    void probe_composite404_recordsPlain() {
+        when(api.listUsers("Bearer t", null, 0, 1)).thenReturn(Uni.createFrom().item(Buffer.buffer("[{\"id\":\"u1\"}]")));
+        when(api.getEffectiveRealmRoles("Bearer t", "u1"))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException(404)));
+
+        assertEquals(Variant.PLAIN, endpoint.probe().await().indefinitely());
+        assertEquals(Variant.PLAIN, endpoint.known());
+    }
+
+    @Test
+    void probe_noUsers_recordsNothing() {
+        when(api.listUsers("Bearer t", null, 0, 1)).thenReturn(Uni.createFrom().item(Buffer.buffer("[]")));
+
+        assertNull(endpoint.probe().await().indefinitely());
+        assertNull(endpoint.known());
+    }
+
+    @Test
+    void known_afterInterval_isForgotten() {
+        endpoint.record(Variant.PLAIN);
+        endpoint.clock = Clock.fixed(now.plus(Duration.ofMinutes(61)), ZoneOffset.UTC);
+
+        assertNull(endpoint.known());
+    }
+
+    @Test
+    void unexpected_resetsOnlyOnServerSideStatus() {
+        endpoint.record(Variant.PLAIN);
+
+        endpoint.unexpected(404);
+        endpoint.unexpected(401);
+        assertEquals(Variant.PLAIN, endpoint.known());
+
+        endpoint.unexpected(500);
+        assertNull(endpoint.known());
+    }
+}
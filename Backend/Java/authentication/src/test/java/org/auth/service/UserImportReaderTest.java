@@ -0,0 +1,66 @@
+package org.auth.service;
+
+import org.auth.service.UserImportReader.Format;
+import org.auth.service.UserImportReader.Row;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for UserImportReader (CSV and NDJSON parsing, row-level errors).
+ */
+public class UserImportReaderTest {
+
+    private static UserImportReader open(Format format, String content) throws IOException {
+        return UserImportReader.open(format, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void csv_readsColumnsByHeader_withQuotesAndLists() throws IOException {
+        UserImportReader rows = open(Format.CSV,
+                "email,username,password,enabled,realmRoles\n" +
+                "\n" +
+                "aleja@example.com,\"Aleja, \"\"A\"\"\",S3cret!,false,Customer;client\n");
+
+        Row row = rows.next();
+
+        assertEquals(0, row.index());
+        assertNull(row.error());
+        assertEquals("Aleja, \"A\"", row.user().username());
+        assertEquals("aleja@example.com", row.user().email());
+        assertFalse(row.user().enabled());
+        assertTrue(row.user().emailVerified());
+        assertEquals(List.of("Customer", "client"), row.user().realmRoles());
+        assertNull(rows.next());
+    }
+
+    @Test
+    void csv_missingRequiredColumn_isRejectedOnOpen() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> open(Format.CSV, "username,password\nnico,x\n"));
+        assertEquals("CSV column missing: email", e.getMessage());
+    }
+
+    @Test
+    void ndjson_badLine_becomesRowError_andReadingContinues() throws IOException {
+        UserImportReader rows = open(Format.NDJSON,
+                "{\"username\":\"nico\",\"email\":\"n@x\",\"password\":\"p\",\"groups\":[\"/customers\"]}\n" +
+                "{not json\n" +
+                "{\"username\":\"aleja\",\"email\":\"a@x\",\"password\":\"p\"}\n");
+
+        Row first = rows.next();
+        Row second = rows.next();
+        Row third = rows.next();
+
+        assertEquals(List.of("/customers"), first.user().groups());
+        assertEquals(1, second.index());
+        assertNull(second.user());
+        assertTrue(second.error().startsWith("Invalid row"));
+        assertEquals("aleja", third.user().username());
+    }
+}
@@ -0,0 +1,94 @@
+package org.auth.service;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the per-user mutation ordering.
+ */
+public class UserMutationsTest {
+
+    private final UserMutations mutations = new UserMutations();
+
+    @Test
+    void sameUser_runsInArrivalOrder_otherUsersDoNotWait() throws Exception {
+        List<String> log = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> firstWrite = new CompletableFuture<>();
+
+        CompletableFuture<String> first = mutations.serialized("u1", () -> {
+            log.add("u1-first");
+            return Uni.createFrom().completionStage(firstWrite).replaceWith("first");
+        }).subscribeAsCompletionStage();
+        CompletableFuture<String> second = mutations.serialized("u1", () -> {
+            log.add("u1-second");
+            return Uni.createFrom().item("second");
+        }).subscribeAsCompletionStage();
+        String other = mutations.locked("u2", () -> "other");
+
+        assertEquals("other", other);
+        assertEquals(List.of("u1-first"), log);
+        assertFalse(second.isDone());
+        assertEquals(1, mutations.stats().waiting());
+
+        firstWrite.complete(null);
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("u1-first", "u1-second"), log);
+        UserMutations.Stats stats = mutations.stats();
+        assertEquals(3, stats.mutations());
+        assertEquals(1, stats.contended());
+        assertEquals(0, stats.waiting());
+        assertEquals(0, stats.users());
+    }
+
+    @Test
+    void blockingTurn_waitsForReactiveOne_andFailureReleasesTheTurn() throws Exception {
+        CompletableFuture<Void> write = new CompletableFuture<>();
+        mutations.serialized("u1", () -> Uni.createFrom().completionStage(write)).subscribe().with(v -> { }, e -> { });
+
+        CountDownLatch ran = new CountDownLatch(1);
+        Thread waiter = Thread.ofVirtual().start(() -> mutations.locked("u1", () -> {
+            ran.countDown();
+            return null;
+        }));
+        assertFalse(ran.await(50, TimeUnit.MILLISECONDS));
+
+        write.completeExceptionally(new KcCallException("Update user failed", 500));
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        waiter.join();
+    }
+
+    @Test
+    void cancelledWhileWaiting_neverRuns_andKeepsTheOrder() throws Exception {
+        CompletableFuture<Void> firstWrite = new CompletableFuture<>();
+        List<String> log = new CopyOnWriteArrayList<>();
+        mutations.serialized("u1", () -> Uni.createFrom().completionStage(firstWrite)).subscribe().with(v -> { });
+
+        Cancellable second = mutations.serialized("u1", () -> {
+            log.add("second");
+            return Uni.createFrom().voidItem();
+        }).subscribe().with(v -> { });
+        CompletableFuture<Void> third = mutations.serialized("u1", () -> {
+            log.add("third");
+            return Uni.createFrom().voidItem();
+        }).subscribeAsCompletionStage();
+
+        second.cancel();
+        assertFalse(third.isDone()); // still behind the first one
+
+        firstWrite.complete(null);
+        third.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("third"), log);
+    }
+}
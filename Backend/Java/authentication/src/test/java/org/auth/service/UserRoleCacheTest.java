@@ -0,0 +1,111 @@
+package org.auth.service;
+
+import org.auth.client.RoleRepresentation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for UserRoleCache (TTL, LRU eviction, write-through and stats).
+ */
+public class UserRoleCacheTest {
+
+    private UserRoleCache cache;
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        now = Instant.parse("2025-01-01T00:00:00Z");
+        cache = new UserRoleCache();
+        cache.ttl = Duration.ofSeconds(30);
+        cache.maxSize = 2;
+        cache.clock = Clock.fixed(now, ZoneOffset.UTC);
+    }
+
+    private static RoleRepresentation role(String name, boolean composite) {
+        RoleRepresentation r = new RoleRepresentation();
+        r.name = name;
+        r.composite = composite;
+        return r;
+    }
+
+    @Test
+    void get_countsHitsAndMisses() {
+        assertEquals(Optional.empty(), cache.get("u1"));
+        cache.put("u1", cache.generation("u1"), List.of("Customer"));
+
+        assertEquals(Optional.of(List.of("Customer")), cache.get("u1"));
+
+        UserRoleCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    void get_afterTtl_isMiss() {
+        cache.put("u1", cache.generation("u1"), List.of("Customer"));
+        cache.clock = Clock.fixed(now.plusSeconds(31), ZoneOffset.UTC);
+
+        assertTrue(cache.get("u1").isEmpty());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void put_overMaxSize_evictsLeastRecentlyUsed() {
+        cache.put("u1", cache.generation("u1"), List.of("a"));
+        cache.put("u2", cache.generation("u2"), List.of("b"));
+        cache.get("u1");
+        cache.put("u3", cache.generation("u3"), List.of("c"));
+
+        assertTrue(cache.get("u1").isPresent());
+        assertTrue(cache.get("u2").isEmpty());
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void added_plainRole_updatesEntry_compositeRole_dropsIt() {
+        cache.put("u1", cache.generation("u1"), List.of("Customer"));
+        cache.added("u1", List.of(role("admin", false)));
+        assertEquals(Optional.of(List.of("Customer", "admin")), cache.get("u1"));
+
+        cache.added("u1", List.of(role("staff", true)));
+        assertTrue(cache.get("u1").isEmpty());
+    }
+
+    @Test
+    void put_afterWriteSinceLoadStarted_isSkipped() {
+        long before = cache.generation("u1");
+        cache.invalidate("u1");
+        cache.put("u1", before, List.of("Customer"));
+        assertTrue(cache.get("u1").isEmpty());
+
+        long other = cache.generation("u2");
+        cache.added("u1", List.of(role("admin", false)));
+        cache.put("u2", other, List.of("Customer"));
+        assertEquals(Optional.of(List.of("Customer")), cache.get("u2"));
+
+        cache.put("u1", cache.generation("u1"), List.of("Customer", "admin"));
+        assertEquals(Optional.of(List.of("Customer", "admin")), cache.get("u1"));
+    }
+
+    @Test
+    void put_forUserWhoseWriteRecordWasEvicted_staysConservative() {
+        long before = cache.generation("u1");
+        cache.invalidate("u1");
+        cache.invalidate("u2");
+        cache.invalidate("u3");
+
+        cache.put("u1", before, List.of("Customer"));
+
+        assertTrue(cache.get("u1").isEmpty());
+    }
+}